@@ -0,0 +1,133 @@
+class NestedLoops {
+    public static void main(String[] a) {
+        System.out.println(new Loops().Start(6));
+    }
+}
+
+// Nested while loops over the same arrays, where an inner loop only runs on
+// some of the outer loop's iterations
+class Loops {
+
+    int[] arr ;
+    int[] other ;
+
+    public int Start(int size) {
+        int aux ;
+        aux = this.Init(size);
+        System.out.println(this.ConditionalInner());
+        System.out.println(this.InnerBothBranches());
+        System.out.println(this.InnerAfterInner());
+        System.out.println(this.Counted());
+        return 0;
+    }
+
+    public int Init(int size) {
+        int i ;
+        arr = new int[size];
+        other = new int[size + 2];
+        i = 0;
+        while (i < arr.length) {
+            arr[i] = i * 3 + 1;
+            i = i + 1;
+        }
+        i = 0;
+        while (i < other.length) {
+            other[i] = 10 - i;
+            i = i + 1;
+        }
+        return 0;
+    }
+
+    // the inner loop's bound is hoisted only where the inner loop runs, the
+    // outer loop reads the array after the if as well
+    public int ConditionalInner() {
+        int i ;
+        int j ;
+        int sum ;
+        sum = 0;
+        i = 0;
+        while (i < arr.length) {
+            if (i < 3) {
+                j = 0;
+                while (j < arr.length) {
+                    sum = sum + arr[j];
+                    j = j + 1;
+                }
+            } else {
+                sum = sum - 1;
+            }
+            sum = sum + arr[1];
+            i = i + 1;
+        }
+        return sum;
+    }
+
+    public int InnerBothBranches() {
+        int i ;
+        int j ;
+        int sum ;
+        sum = 0;
+        i = 0;
+        while (i < other.length) {
+            if (i < 4) {
+                j = 0;
+                while (j < arr.length) {
+                    sum = sum + arr[j] * other[i];
+                    j = j + 1;
+                }
+            } else {
+                j = 1;
+                while (j < other.length) {
+                    sum = sum + other[j];
+                    j = j + 2;
+                }
+            }
+            other[0] = other[0] + 1;
+            sum = sum + other[0] + arr[arr.length - 1];
+            i = i + 1;
+        }
+        return sum;
+    }
+
+    // two inner loops in a row, the second bounded by a different array
+    public int InnerAfterInner() {
+        int i ;
+        int j ;
+        int sum ;
+        sum = 0;
+        i = 0;
+        while (i < 3) {
+            j = 0;
+            while (j < arr.length) {
+                arr[j] = arr[j] + 1;
+                j = j + 1;
+            }
+            j = 0;
+            while (j < other.length) {
+                sum = sum + other[j] - arr[0];
+                j = j + 1;
+            }
+            sum = sum + arr[i];
+            i = i + 1;
+        }
+        return sum;
+    }
+
+    // constant bounds, which may be unrolled
+    public int Counted() {
+        int i ;
+        int j ;
+        int sum ;
+        sum = 0;
+        i = 0;
+        while (i < 4) {
+            j = 0;
+            while (j < 3) {
+                sum = sum + i * j;
+                j = j + 1;
+            }
+            i = i + 1;
+        }
+        return sum;
+    }
+}
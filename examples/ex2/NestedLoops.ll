@@ -0,0 +1,945 @@
+declare i64 @write(i32, i8*, i64)
+declare i32 @atexit(void ()*)
+declare i32 @dprintf(i32, i8*, ...)
+declare void @exit(i32) noreturn
+declare i8* @calloc(i64, i64)
+declare void @free(i8*)
+
+@_cOOB = constant [15 x i8] c"Out of bounds\0a\00"
+@_out_buf = global [65536 x i8] zeroinitializer
+@_out_len = global i32 0
+@_cOOM = constant [15 x i8] c"Out of memory\0a\00"
+@_arena_next = global i8* null
+@_arena_end = global i8* null
+
+; writes the buffered output to stdout
+define void @flush_output() {
+entry:
+    %len = load i32, i32* @_out_len
+    br label %cond
+cond:
+    %written = phi i32 [0, %entry], [%next, %write]
+    %more = icmp slt i32 %written, %len
+    br i1 %more, label %write, label %done
+write:
+    %ptr = getelementptr inbounds [65536 x i8], [65536 x i8]* @_out_buf, i32 0, i32 %written
+    %left = sub i32 %len, %written
+    %left64 = zext i32 %left to i64
+    %res = call i64 @write(i32 1, i8* %ptr, i64 %left64)
+    %failed = icmp slt i64 %res, 1
+    %res32 = trunc i64 %res to i32
+    %next = add i32 %written, %res32
+    br i1 %failed, label %done, label %cond
+done:
+    store i32 0, i32* @_out_len
+    ret void
+}
+
+; appends the decimal digits of %i and a newline to the output buffer
+define void @print_int(i32 %i) {
+entry:
+    %len = load i32, i32* @_out_len
+    %full = icmp sgt i32 %len, 65524
+    br i1 %full, label %flush, label %convert
+flush:
+    call void @flush_output()
+    br label %convert
+convert:
+    %start = phi i32 [%len, %entry], [0, %flush]
+    %neg = icmp slt i32 %i, 0
+    %minus = sub i32 0, %i
+    %abs = select i1 %neg, i32 %minus, i32 %i
+    %sign = zext i1 %neg to i32
+    ; the digits overwrite the sign of a non negative number
+    %sign_ptr = getelementptr inbounds [65536 x i8], [65536 x i8]* @_out_buf, i32 0, i32 %start
+    store i8 45, i8* %sign_ptr
+    br label %count
+count:
+    %digits = phi i32 [1, %convert], [%digits_next, %count]
+    %rest = phi i32 [%abs, %convert], [%rest_next, %count]
+    %digits_next = add i32 %digits, 1
+    %rest_next = udiv i32 %rest, 10
+    %more = icmp uge i32 %rest, 10
+    br i1 %more, label %count, label %fill
+fill:
+    %num_start = add i32 %start, %sign
+    %end = add i32 %num_start, %digits
+    %nl_ptr = getelementptr inbounds [65536 x i8], [65536 x i8]* @_out_buf, i32 0, i32 %end
+    store i8 10, i8* %nl_ptr
+    %new_len = add i32 %end, 1
+    store i32 %new_len, i32* @_out_len
+    br label %digit
+digit:
+    %pos = phi i32 [%end, %fill], [%pos_next, %digit]
+    %val = phi i32 [%abs, %fill], [%val_next, %digit]
+    %pos_next = sub i32 %pos, 1
+    %val_next = udiv i32 %val, 10
+    %tens = mul i32 %val_next, 10
+    %d = sub i32 %val, %tens
+    %d8 = trunc i32 %d to i8
+    %c = add i8 %d8, 48
+    %digit_ptr = getelementptr inbounds [65536 x i8], [65536 x i8]* @_out_buf, i32 0, i32 %pos_next
+    store i8 %c, i8* %digit_ptr
+    %last = icmp eq i32 %val_next, 0
+    br i1 %last, label %done, label %digit
+done:
+    ret void
+}
+
+; the slow path of allocation, taken when the current chunk of the arena is exhausted: takes a new
+; zeroed chunk from calloc, which is never freed, and allocates %size bytes from it
+define i8* @arena_refill(i64 %size) {
+entry:
+    %big = icmp ugt i64 %size, 4194304
+    %chunk_size = select i1 %big, i64 %size, i64 4194304
+    %chunk = call i8* @calloc(i64 1, i64 %chunk_size)
+    %failed = icmp eq i8* %chunk, null
+    br i1 %failed, label %oom, label %allocated
+allocated:
+    br i1 %big, label %done, label %refill
+refill:
+    %next = getelementptr inbounds i8, i8* %chunk, i64 %size
+    %end = getelementptr inbounds i8, i8* %chunk, i64 %chunk_size
+    store i8* %next, i8** @_arena_next
+    store i8* %end, i8** @_arena_end
+    br label %done
+done:
+    ret i8* %chunk
+oom:
+    call void @flush_output()
+    %_str = bitcast [15 x i8]* @_cOOM to i8*
+    call i64 @write(i32 2, i8* %_str, i64 14)
+    call void @exit(i32 1)
+    unreachable
+}
+
+define void @throw_oob() noreturn {
+    call void @flush_output()
+    %_str = bitcast [15 x i8]* @_cOOB to i8*
+    call i64 @write(i32 1, i8* %_str, i64 14)
+    call void @exit(i32 1)
+    unreachable
+}
+
+; weights of branches that almost always go one way - bounds checks and the arena fast path
+!0 = !{!"branch_weights", i32 2000, i32 1}
+
+%IntArray = type { i32, [0 x i32] }
+%class.Loops = type { i8**, %IntArray*, %IntArray* }
+
+define i32 @main() {
+	call i32 @atexit(void ()* @flush_output)
+	%_0 = getelementptr %class.Loops, %class.Loops* null, i32 1
+	%_1 = ptrtoint %class.Loops* %_0 to i64
+	%_2 = add i64 %_1, 7
+	%_3 = and i64 %_2, -8
+	%_4 = load i8*, i8** @_arena_next
+	%_5 = getelementptr i8, i8* %_4, i64 %_3
+	%_6 = load i8*, i8** @_arena_end
+	%_7 = icmp ule i8* %_5, %_6
+	br i1 %_7, label %alloc_fast0, label %alloc_slow0, !prof !0
+alloc_fast0:
+	store i8* %_5, i8** @_arena_next
+	br label %alloc_end0
+alloc_slow0:
+	%_8 = call i8* @arena_refill(i64 %_3)
+	br label %alloc_end0
+alloc_end0:
+	%_9 = phi i8* [%_4, %alloc_fast0], [%_8, %alloc_slow0]
+	%_10 = bitcast i8* %_9 to %class.Loops*
+	%_11 = getelementptr inbounds %class.Loops, %class.Loops* %_10, i32 0, i32 0
+	%_12 = getelementptr [6 x i8*], [6 x i8*]* @.Loops_vtable, i32 0, i32 0
+	store i8** %_12, i8*** %_11
+	%_14 = call i32 @Loops.Start(i8* %_9, i32 6)
+	call void (i32) @print_int(i32 %_14)
+	ret i32 0
+}
+
+@.Loops_vtable = global [6 x i8*] [i8* bitcast (i32 (i8*, i32)* @Loops.Start to i8*),i8* bitcast (i32 (i8*, i32)* @Loops.Init to i8*),i8* bitcast (i32 (i8*)* @Loops.ConditionalInner to i8*),i8* bitcast (i32 (i8*)* @Loops.InnerBothBranches to i8*),i8* bitcast (i32 (i8*)* @Loops.InnerAfterInner to i8*),i8* bitcast (i32 (i8*)* @Loops.Counted to i8*)]
+
+define i32 @Loops.Start(i8* %this, i32 %.size) {
+	%size = alloca i32
+	store i32 %.size, i32* %size
+	%aux = alloca i32
+	%_1 = call i32 @Loops.Init(i8* %this, i32 %.size)
+	store i32 %_1, i32* %aux
+	%_2 = call i32 @Loops.ConditionalInner(i8* %this)
+	call void (i32) @print_int(i32 %_2)
+	%_3 = call i32 @Loops.InnerBothBranches(i8* %this)
+	call void (i32) @print_int(i32 %_3)
+	%_4 = call i32 @Loops.InnerAfterInner(i8* %this)
+	call void (i32) @print_int(i32 %_4)
+	%_5 = call i32 @Loops.Counted(i8* %this)
+	call void (i32) @print_int(i32 %_5)
+	ret i32 0
+}
+
+define i32 @Loops.Init(i8* %this, i32 %.size) {
+	%size = alloca i32
+	store i32 %.size, i32* %size
+	%i = alloca i32
+	%_1 = icmp sge i32 %.size, 0
+	br i1 %_1, label %arr_alloc0, label %oob_trap, !prof !0
+arr_alloc0:
+	%_2 = zext i32 %.size to i64
+	%_3 = add i64 %_2, 1
+	%_4 = mul i64 %_3, 4
+	%_5 = add i64 %_4, 7
+	%_6 = and i64 %_5, -8
+	%_7 = load i8*, i8** @_arena_next
+	%_8 = getelementptr i8, i8* %_7, i64 %_6
+	%_9 = load i8*, i8** @_arena_end
+	%_10 = icmp ule i8* %_8, %_9
+	br i1 %_10, label %alloc_fast1, label %alloc_slow1, !prof !0
+alloc_fast1:
+	store i8* %_8, i8** @_arena_next
+	br label %alloc_end1
+alloc_slow1:
+	%_11 = call i8* @arena_refill(i64 %_6)
+	br label %alloc_end1
+alloc_end1:
+	%_12 = phi i8* [%_7, %alloc_fast1], [%_11, %alloc_slow1]
+	%_13 = bitcast i8* %_12 to %IntArray*
+	%_14 = getelementptr inbounds %IntArray, %IntArray* %_13, i32 0, i32 0
+	store i32 %.size, i32* %_14
+	%_15 = bitcast i8* %this to %class.Loops*
+	%_16 = getelementptr inbounds %class.Loops, %class.Loops* %_15, i32 0, i32 1
+	store %IntArray* %_13, %IntArray** %_16
+	%_17 = load i32, i32* %size
+	%_19 = add i32 %_17, 2
+	%_20 = icmp sge i32 %_19, 0
+	br i1 %_20, label %arr_alloc2, label %oob_trap, !prof !0
+arr_alloc2:
+	%_21 = zext i32 %_19 to i64
+	%_22 = add i64 %_21, 1
+	%_23 = mul i64 %_22, 4
+	%_24 = add i64 %_23, 7
+	%_25 = and i64 %_24, -8
+	%_26 = load i8*, i8** @_arena_next
+	%_27 = getelementptr i8, i8* %_26, i64 %_25
+	%_28 = load i8*, i8** @_arena_end
+	%_29 = icmp ule i8* %_27, %_28
+	br i1 %_29, label %alloc_fast3, label %alloc_slow3, !prof !0
+alloc_fast3:
+	store i8* %_27, i8** @_arena_next
+	br label %alloc_end3
+alloc_slow3:
+	%_30 = call i8* @arena_refill(i64 %_25)
+	br label %alloc_end3
+alloc_end3:
+	%_31 = phi i8* [%_26, %alloc_fast3], [%_30, %alloc_slow3]
+	%_32 = bitcast i8* %_31 to %IntArray*
+	%_33 = getelementptr inbounds %IntArray, %IntArray* %_32, i32 0, i32 0
+	store i32 %_19, i32* %_33
+	%_34 = bitcast i8* %this to %class.Loops*
+	%_35 = getelementptr inbounds %class.Loops, %class.Loops* %_34, i32 0, i32 2
+	store %IntArray* %_32, %IntArray** %_35
+	store i32 0, i32* %i
+	%_38 = getelementptr inbounds %class.Loops, %class.Loops* %_34, i32 0, i32 1
+	%_39 = load %IntArray*, %IntArray** %_38
+	%_40 = getelementptr inbounds %IntArray, %IntArray* %_39, i32 0, i32 1, i32 0
+	%_41 = getelementptr inbounds %IntArray, %IntArray* %_39, i32 0, i32 0
+	%_42 = load i32, i32* %_41
+	%_43 = sext i32 %_42 to i64
+	br label %unroll_cond4
+unroll_cond4:
+	%_44 = load i32, i32* %i
+	%_45 = sext i32 %_44 to i64
+	%_46 = add i64 %_45, 2
+	%_47 = icmp slt i64 %_46, %_43
+	br i1 %_47, label %unroll_loop5, label %unroll_end6
+unroll_loop5:
+	%_48 = load i32, i32* %i
+	%_49 = icmp ult i32 %_48, %_42
+	br i1 %_49, label %arr_alloc7, label %oob_trap, !prof !0
+arr_alloc7:
+	%_50 = getelementptr inbounds i32, i32* %_40, i32 %_48
+	%_51 = load i32, i32* %i
+	%_52 = shl i32 %_51, 1
+	%_53 = add i32 %_52, %_51
+	%_55 = add i32 %_53, 1
+	store i32 %_55, i32* %_50
+	%_58 = add i32 %_51, 1
+	store i32 %_58, i32* %i
+	%_60 = icmp ult i32 %_58, %_42
+	br i1 %_60, label %arr_alloc8, label %oob_trap, !prof !0
+arr_alloc8:
+	%_61 = getelementptr inbounds i32, i32* %_40, i32 %_58
+	%_62 = load i32, i32* %i
+	%_63 = shl i32 %_62, 1
+	%_64 = add i32 %_63, %_62
+	%_66 = add i32 %_64, 1
+	store i32 %_66, i32* %_61
+	%_69 = add i32 %_62, 1
+	store i32 %_69, i32* %i
+	%_71 = icmp ult i32 %_69, %_42
+	br i1 %_71, label %arr_alloc9, label %oob_trap, !prof !0
+arr_alloc9:
+	%_72 = getelementptr inbounds i32, i32* %_40, i32 %_69
+	%_73 = load i32, i32* %i
+	%_74 = shl i32 %_73, 1
+	%_75 = add i32 %_74, %_73
+	%_77 = add i32 %_75, 1
+	store i32 %_77, i32* %_72
+	%_80 = add i32 %_73, 1
+	store i32 %_80, i32* %i
+	br label %unroll_cond4
+unroll_end6:
+	br label %while_cond10
+while_cond10:
+	%_81 = load i32, i32* %i
+	%_82 = icmp slt i32 %_81, %_42
+	br i1 %_82, label %while_loop11, label %while_end12
+while_loop11:
+	%_83 = load i32, i32* %i
+	%_84 = icmp ult i32 %_83, %_42
+	br i1 %_84, label %arr_alloc13, label %oob_trap, !prof !0
+arr_alloc13:
+	%_85 = getelementptr inbounds i32, i32* %_40, i32 %_83
+	%_86 = load i32, i32* %i
+	%_87 = shl i32 %_86, 1
+	%_88 = add i32 %_87, %_86
+	%_90 = add i32 %_88, 1
+	store i32 %_90, i32* %_85
+	%_93 = add i32 %_86, 1
+	store i32 %_93, i32* %i
+	br label %while_cond10
+while_end12:
+	store i32 0, i32* %i
+	%_95 = bitcast i8* %this to %class.Loops*
+	%_96 = getelementptr inbounds %class.Loops, %class.Loops* %_95, i32 0, i32 2
+	%_97 = load %IntArray*, %IntArray** %_96
+	%_98 = getelementptr inbounds %IntArray, %IntArray* %_97, i32 0, i32 1, i32 0
+	%_99 = getelementptr inbounds %IntArray, %IntArray* %_97, i32 0, i32 0
+	%_100 = load i32, i32* %_99
+	%_101 = sext i32 %_100 to i64
+	br label %unroll_cond14
+unroll_cond14:
+	%_102 = load i32, i32* %i
+	%_103 = sext i32 %_102 to i64
+	%_104 = add i64 %_103, 2
+	%_105 = icmp slt i64 %_104, %_101
+	br i1 %_105, label %unroll_loop15, label %unroll_end16
+unroll_loop15:
+	%_106 = load i32, i32* %i
+	%_107 = icmp ult i32 %_106, %_100
+	br i1 %_107, label %arr_alloc17, label %oob_trap, !prof !0
+arr_alloc17:
+	%_108 = getelementptr inbounds i32, i32* %_98, i32 %_106
+	%_110 = load i32, i32* %i
+	%_111 = sub i32 10, %_110
+	store i32 %_111, i32* %_108
+	%_114 = add i32 %_110, 1
+	store i32 %_114, i32* %i
+	%_116 = icmp ult i32 %_114, %_100
+	br i1 %_116, label %arr_alloc18, label %oob_trap, !prof !0
+arr_alloc18:
+	%_117 = getelementptr inbounds i32, i32* %_98, i32 %_114
+	%_119 = load i32, i32* %i
+	%_120 = sub i32 10, %_119
+	store i32 %_120, i32* %_117
+	%_123 = add i32 %_119, 1
+	store i32 %_123, i32* %i
+	%_125 = icmp ult i32 %_123, %_100
+	br i1 %_125, label %arr_alloc19, label %oob_trap, !prof !0
+arr_alloc19:
+	%_126 = getelementptr inbounds i32, i32* %_98, i32 %_123
+	%_128 = load i32, i32* %i
+	%_129 = sub i32 10, %_128
+	store i32 %_129, i32* %_126
+	%_132 = add i32 %_128, 1
+	store i32 %_132, i32* %i
+	br label %unroll_cond14
+unroll_end16:
+	br label %while_cond20
+while_cond20:
+	%_133 = load i32, i32* %i
+	%_134 = icmp slt i32 %_133, %_100
+	br i1 %_134, label %while_loop21, label %while_end22
+while_loop21:
+	%_135 = load i32, i32* %i
+	%_136 = icmp ult i32 %_135, %_100
+	br i1 %_136, label %arr_alloc23, label %oob_trap, !prof !0
+arr_alloc23:
+	%_137 = getelementptr inbounds i32, i32* %_98, i32 %_135
+	%_139 = load i32, i32* %i
+	%_140 = sub i32 10, %_139
+	store i32 %_140, i32* %_137
+	%_143 = add i32 %_139, 1
+	store i32 %_143, i32* %i
+	br label %while_cond20
+while_end22:
+	ret i32 0
+oob_trap:
+	call void @throw_oob()
+	unreachable
+}
+
+define i32 @Loops.ConditionalInner(i8* %this) {
+	%i = alloca i32
+	%j = alloca i32
+	%sum = alloca i32
+	store i32 0, i32* %sum
+	store i32 0, i32* %i
+	%_2 = bitcast i8* %this to %class.Loops*
+	%_3 = getelementptr inbounds %class.Loops, %class.Loops* %_2, i32 0, i32 1
+	%_4 = load %IntArray*, %IntArray** %_3
+	%_5 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 1, i32 0
+	%_6 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_7 = load i32, i32* %_6
+	br label %while_cond0
+while_cond0:
+	%_8 = load i32, i32* %i
+	%_9 = icmp slt i32 %_8, %_7
+	br i1 %_9, label %while_loop1, label %while_end2
+while_loop1:
+	%_10 = load i32, i32* %i
+	%_12 = icmp slt i32 %_10, 3
+	br i1 %_12, label %if3, label %if4
+if3:
+	store i32 0, i32* %j
+	%_14 = sext i32 %_7 to i64
+	br label %unroll_cond6
+unroll_cond6:
+	%_15 = load i32, i32* %j
+	%_16 = sext i32 %_15 to i64
+	%_17 = add i64 %_16, 2
+	%_18 = icmp slt i64 %_17, %_14
+	br i1 %_18, label %unroll_loop7, label %unroll_end8
+unroll_loop7:
+	%_19 = load i32, i32* %sum
+	%_20 = load i32, i32* %j
+	%_21 = icmp ult i32 %_20, %_7
+	br i1 %_21, label %arr_alloc9, label %oob_trap, !prof !0
+arr_alloc9:
+	%_22 = getelementptr inbounds i32, i32* %_5, i32 %_20
+	%_23 = load i32, i32* %_22
+	%_24 = add i32 %_19, %_23
+	store i32 %_24, i32* %sum
+	%_25 = load i32, i32* %j
+	%_27 = add i32 %_25, 1
+	store i32 %_27, i32* %j
+	%_30 = icmp ult i32 %_27, %_7
+	br i1 %_30, label %arr_alloc10, label %oob_trap, !prof !0
+arr_alloc10:
+	%_31 = getelementptr inbounds i32, i32* %_5, i32 %_27
+	%_32 = load i32, i32* %_31
+	%_33 = add i32 %_24, %_32
+	store i32 %_33, i32* %sum
+	%_34 = load i32, i32* %j
+	%_36 = add i32 %_34, 1
+	store i32 %_36, i32* %j
+	%_39 = icmp ult i32 %_36, %_7
+	br i1 %_39, label %arr_alloc11, label %oob_trap, !prof !0
+arr_alloc11:
+	%_40 = getelementptr inbounds i32, i32* %_5, i32 %_36
+	%_41 = load i32, i32* %_40
+	%_42 = add i32 %_33, %_41
+	store i32 %_42, i32* %sum
+	%_43 = load i32, i32* %j
+	%_45 = add i32 %_43, 1
+	store i32 %_45, i32* %j
+	br label %unroll_cond6
+unroll_end8:
+	br label %while_cond12
+while_cond12:
+	%_46 = load i32, i32* %j
+	%_47 = icmp slt i32 %_46, %_7
+	br i1 %_47, label %while_loop13, label %while_end14
+while_loop13:
+	%_48 = load i32, i32* %sum
+	%_49 = load i32, i32* %j
+	%_50 = icmp ult i32 %_49, %_7
+	br i1 %_50, label %arr_alloc15, label %oob_trap, !prof !0
+arr_alloc15:
+	%_51 = getelementptr inbounds i32, i32* %_5, i32 %_49
+	%_52 = load i32, i32* %_51
+	%_53 = add i32 %_48, %_52
+	store i32 %_53, i32* %sum
+	%_54 = load i32, i32* %j
+	%_56 = add i32 %_54, 1
+	store i32 %_56, i32* %j
+	br label %while_cond12
+while_end14:
+	br label %if5
+if4:
+	%_57 = load i32, i32* %sum
+	%_59 = sub i32 %_57, 1
+	store i32 %_59, i32* %sum
+	br label %if5
+if5:
+	%_60 = load i32, i32* %sum
+	%_62 = icmp ult i32 1, %_7
+	br i1 %_62, label %arr_alloc16, label %oob_trap, !prof !0
+arr_alloc16:
+	%_63 = getelementptr inbounds i32, i32* %_5, i32 1
+	%_64 = load i32, i32* %_63
+	%_65 = add i32 %_60, %_64
+	store i32 %_65, i32* %sum
+	%_66 = load i32, i32* %i
+	%_68 = add i32 %_66, 1
+	store i32 %_68, i32* %i
+	br label %while_cond0
+while_end2:
+	%_69 = load i32, i32* %sum
+	ret i32 %_69
+oob_trap:
+	call void @throw_oob()
+	unreachable
+}
+
+define i32 @Loops.InnerBothBranches(i8* %this) {
+	%i = alloca i32
+	%j = alloca i32
+	%sum = alloca i32
+	store i32 0, i32* %sum
+	store i32 0, i32* %i
+	%_2 = bitcast i8* %this to %class.Loops*
+	%_3 = getelementptr inbounds %class.Loops, %class.Loops* %_2, i32 0, i32 2
+	%_4 = load %IntArray*, %IntArray** %_3
+	%_5 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 1, i32 0
+	%_7 = getelementptr inbounds %class.Loops, %class.Loops* %_2, i32 0, i32 1
+	%_8 = load %IntArray*, %IntArray** %_7
+	%_9 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 1, i32 0
+	%_10 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_11 = load i32, i32* %_10
+	br label %while_cond0
+while_cond0:
+	%_12 = load i32, i32* %i
+	%_13 = icmp slt i32 %_12, %_11
+	br i1 %_13, label %while_loop1, label %while_end2
+while_loop1:
+	%_14 = load i32, i32* %i
+	%_16 = icmp slt i32 %_14, 4
+	br i1 %_16, label %if3, label %if4
+if3:
+	store i32 0, i32* %j
+	%_18 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 0
+	%_19 = load i32, i32* %_18
+	%_20 = sext i32 %_19 to i64
+	br label %unroll_cond6
+unroll_cond6:
+	%_21 = load i32, i32* %j
+	%_22 = sext i32 %_21 to i64
+	%_23 = add i64 %_22, 1
+	%_24 = icmp slt i64 %_23, %_20
+	br i1 %_24, label %unroll_loop7, label %unroll_end8
+unroll_loop7:
+	%_25 = load i32, i32* %sum
+	%_26 = load i32, i32* %j
+	%_27 = icmp ult i32 %_26, %_19
+	br i1 %_27, label %arr_alloc9, label %oob_trap, !prof !0
+arr_alloc9:
+	%_28 = getelementptr inbounds i32, i32* %_9, i32 %_26
+	%_29 = load i32, i32* %_28
+	%_30 = load i32, i32* %i
+	%_31 = icmp ult i32 %_30, %_11
+	br i1 %_31, label %arr_alloc10, label %oob_trap, !prof !0
+arr_alloc10:
+	%_32 = getelementptr inbounds i32, i32* %_5, i32 %_30
+	%_33 = load i32, i32* %_32
+	%_34 = mul i32 %_29, %_33
+	%_35 = add i32 %_25, %_34
+	store i32 %_35, i32* %sum
+	%_36 = load i32, i32* %j
+	%_38 = add i32 %_36, 1
+	store i32 %_38, i32* %j
+	%_41 = icmp ult i32 %_38, %_19
+	br i1 %_41, label %arr_alloc11, label %oob_trap, !prof !0
+arr_alloc11:
+	%_42 = getelementptr inbounds i32, i32* %_9, i32 %_38
+	%_43 = load i32, i32* %_42
+	%_44 = load i32, i32* %i
+	%_45 = icmp ult i32 %_44, %_11
+	br i1 %_45, label %arr_alloc12, label %oob_trap, !prof !0
+arr_alloc12:
+	%_46 = getelementptr inbounds i32, i32* %_5, i32 %_44
+	%_47 = load i32, i32* %_46
+	%_48 = mul i32 %_43, %_47
+	%_49 = add i32 %_35, %_48
+	store i32 %_49, i32* %sum
+	%_50 = load i32, i32* %j
+	%_52 = add i32 %_50, 1
+	store i32 %_52, i32* %j
+	br label %unroll_cond6
+unroll_end8:
+	br label %while_cond13
+while_cond13:
+	%_53 = load i32, i32* %j
+	%_54 = icmp slt i32 %_53, %_19
+	br i1 %_54, label %while_loop14, label %while_end15
+while_loop14:
+	%_55 = load i32, i32* %sum
+	%_56 = load i32, i32* %j
+	%_57 = icmp ult i32 %_56, %_19
+	br i1 %_57, label %arr_alloc16, label %oob_trap, !prof !0
+arr_alloc16:
+	%_58 = getelementptr inbounds i32, i32* %_9, i32 %_56
+	%_59 = load i32, i32* %_58
+	%_60 = load i32, i32* %i
+	%_61 = icmp ult i32 %_60, %_11
+	br i1 %_61, label %arr_alloc17, label %oob_trap, !prof !0
+arr_alloc17:
+	%_62 = getelementptr inbounds i32, i32* %_5, i32 %_60
+	%_63 = load i32, i32* %_62
+	%_64 = mul i32 %_59, %_63
+	%_65 = add i32 %_55, %_64
+	store i32 %_65, i32* %sum
+	%_66 = load i32, i32* %j
+	%_68 = add i32 %_66, 1
+	store i32 %_68, i32* %j
+	br label %while_cond13
+while_end15:
+	br label %if5
+if4:
+	store i32 1, i32* %j
+	%_70 = sext i32 %_11 to i64
+	br label %unroll_cond18
+unroll_cond18:
+	%_71 = load i32, i32* %j
+	%_72 = sext i32 %_71 to i64
+	%_73 = add i64 %_72, 4
+	%_74 = icmp slt i64 %_73, %_70
+	br i1 %_74, label %unroll_loop19, label %unroll_end20
+unroll_loop19:
+	%_75 = load i32, i32* %sum
+	%_76 = load i32, i32* %j
+	%_77 = icmp ult i32 %_76, %_11
+	br i1 %_77, label %arr_alloc21, label %oob_trap, !prof !0
+arr_alloc21:
+	%_78 = getelementptr inbounds i32, i32* %_5, i32 %_76
+	%_79 = load i32, i32* %_78
+	%_80 = add i32 %_75, %_79
+	store i32 %_80, i32* %sum
+	%_81 = load i32, i32* %j
+	%_83 = add i32 %_81, 2
+	store i32 %_83, i32* %j
+	%_86 = icmp ult i32 %_83, %_11
+	br i1 %_86, label %arr_alloc22, label %oob_trap, !prof !0
+arr_alloc22:
+	%_87 = getelementptr inbounds i32, i32* %_5, i32 %_83
+	%_88 = load i32, i32* %_87
+	%_89 = add i32 %_80, %_88
+	store i32 %_89, i32* %sum
+	%_90 = load i32, i32* %j
+	%_92 = add i32 %_90, 2
+	store i32 %_92, i32* %j
+	%_95 = icmp ult i32 %_92, %_11
+	br i1 %_95, label %arr_alloc23, label %oob_trap, !prof !0
+arr_alloc23:
+	%_96 = getelementptr inbounds i32, i32* %_5, i32 %_92
+	%_97 = load i32, i32* %_96
+	%_98 = add i32 %_89, %_97
+	store i32 %_98, i32* %sum
+	%_99 = load i32, i32* %j
+	%_101 = add i32 %_99, 2
+	store i32 %_101, i32* %j
+	br label %unroll_cond18
+unroll_end20:
+	br label %while_cond24
+while_cond24:
+	%_102 = load i32, i32* %j
+	%_103 = icmp slt i32 %_102, %_11
+	br i1 %_103, label %while_loop25, label %while_end26
+while_loop25:
+	%_104 = load i32, i32* %sum
+	%_105 = load i32, i32* %j
+	%_106 = icmp ult i32 %_105, %_11
+	br i1 %_106, label %arr_alloc27, label %oob_trap, !prof !0
+arr_alloc27:
+	%_107 = getelementptr inbounds i32, i32* %_5, i32 %_105
+	%_108 = load i32, i32* %_107
+	%_109 = add i32 %_104, %_108
+	store i32 %_109, i32* %sum
+	%_110 = load i32, i32* %j
+	%_112 = add i32 %_110, 2
+	store i32 %_112, i32* %j
+	br label %while_cond24
+while_end26:
+	br label %if5
+if5:
+	%_114 = icmp ult i32 0, %_11
+	br i1 %_114, label %arr_alloc28, label %oob_trap, !prof !0
+arr_alloc28:
+	%_115 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_117 = icmp ult i32 0, %_11
+	br i1 %_117, label %arr_alloc29, label %oob_trap, !prof !0
+arr_alloc29:
+	%_118 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_119 = load i32, i32* %_118
+	%_121 = add i32 %_119, 1
+	store i32 %_121, i32* %_115
+	%_122 = load i32, i32* %sum
+	%_124 = icmp ult i32 0, %_11
+	br i1 %_124, label %arr_alloc30, label %oob_trap, !prof !0
+arr_alloc30:
+	%_125 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_126 = load i32, i32* %_125
+	%_127 = add i32 %_122, %_126
+	%_128 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 0
+	%_129 = load i32, i32* %_128
+	%_131 = sub i32 %_129, 1
+	%_132 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 0
+	%_133 = load i32, i32* %_132
+	%_134 = icmp ult i32 %_131, %_133
+	br i1 %_134, label %arr_alloc31, label %oob_trap, !prof !0
+arr_alloc31:
+	%_135 = getelementptr inbounds i32, i32* %_9, i32 %_131
+	%_136 = load i32, i32* %_135
+	%_137 = add i32 %_127, %_136
+	store i32 %_137, i32* %sum
+	%_138 = load i32, i32* %i
+	%_140 = add i32 %_138, 1
+	store i32 %_140, i32* %i
+	br label %while_cond0
+while_end2:
+	%_141 = load i32, i32* %sum
+	ret i32 %_141
+oob_trap:
+	call void @throw_oob()
+	unreachable
+}
+
+define i32 @Loops.InnerAfterInner(i8* %this) {
+	%i = alloca i32
+	%j = alloca i32
+	%sum = alloca i32
+	store i32 0, i32* %sum
+	store i32 0, i32* %i
+	%_2 = bitcast i8* %this to %class.Loops*
+	%_3 = getelementptr inbounds %class.Loops, %class.Loops* %_2, i32 0, i32 1
+	%_4 = load %IntArray*, %IntArray** %_3
+	%_5 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 1, i32 0
+	%_7 = getelementptr inbounds %class.Loops, %class.Loops* %_2, i32 0, i32 2
+	%_8 = load %IntArray*, %IntArray** %_7
+	%_9 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 1, i32 0
+	br label %while_cond0
+while_cond0:
+	%_10 = load i32, i32* %i
+	%_12 = icmp slt i32 %_10, 3
+	br i1 %_12, label %while_loop1, label %while_end2
+while_loop1:
+	store i32 0, i32* %j
+	%_14 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_15 = load i32, i32* %_14
+	%_16 = sext i32 %_15 to i64
+	br label %unroll_cond3
+unroll_cond3:
+	%_17 = load i32, i32* %j
+	%_18 = sext i32 %_17 to i64
+	%_19 = add i64 %_18, 2
+	%_20 = icmp slt i64 %_19, %_16
+	br i1 %_20, label %unroll_loop4, label %unroll_end5
+unroll_loop4:
+	%_21 = load i32, i32* %j
+	%_22 = icmp ult i32 %_21, %_15
+	br i1 %_22, label %arr_alloc6, label %oob_trap, !prof !0
+arr_alloc6:
+	%_23 = getelementptr inbounds i32, i32* %_5, i32 %_21
+	%_24 = load i32, i32* %j
+	%_25 = icmp ult i32 %_24, %_15
+	br i1 %_25, label %arr_alloc7, label %oob_trap, !prof !0
+arr_alloc7:
+	%_26 = getelementptr inbounds i32, i32* %_5, i32 %_24
+	%_27 = load i32, i32* %_26
+	%_29 = add i32 %_27, 1
+	store i32 %_29, i32* %_23
+	%_30 = load i32, i32* %j
+	%_32 = add i32 %_30, 1
+	store i32 %_32, i32* %j
+	%_34 = icmp ult i32 %_32, %_15
+	br i1 %_34, label %arr_alloc8, label %oob_trap, !prof !0
+arr_alloc8:
+	%_35 = getelementptr inbounds i32, i32* %_5, i32 %_32
+	%_36 = load i32, i32* %j
+	%_37 = icmp ult i32 %_36, %_15
+	br i1 %_37, label %arr_alloc9, label %oob_trap, !prof !0
+arr_alloc9:
+	%_38 = getelementptr inbounds i32, i32* %_5, i32 %_36
+	%_39 = load i32, i32* %_38
+	%_41 = add i32 %_39, 1
+	store i32 %_41, i32* %_35
+	%_42 = load i32, i32* %j
+	%_44 = add i32 %_42, 1
+	store i32 %_44, i32* %j
+	%_46 = icmp ult i32 %_44, %_15
+	br i1 %_46, label %arr_alloc10, label %oob_trap, !prof !0
+arr_alloc10:
+	%_47 = getelementptr inbounds i32, i32* %_5, i32 %_44
+	%_48 = load i32, i32* %j
+	%_49 = icmp ult i32 %_48, %_15
+	br i1 %_49, label %arr_alloc11, label %oob_trap, !prof !0
+arr_alloc11:
+	%_50 = getelementptr inbounds i32, i32* %_5, i32 %_48
+	%_51 = load i32, i32* %_50
+	%_53 = add i32 %_51, 1
+	store i32 %_53, i32* %_47
+	%_54 = load i32, i32* %j
+	%_56 = add i32 %_54, 1
+	store i32 %_56, i32* %j
+	br label %unroll_cond3
+unroll_end5:
+	br label %while_cond12
+while_cond12:
+	%_57 = load i32, i32* %j
+	%_58 = icmp slt i32 %_57, %_15
+	br i1 %_58, label %while_loop13, label %while_end14
+while_loop13:
+	%_59 = load i32, i32* %j
+	%_60 = icmp ult i32 %_59, %_15
+	br i1 %_60, label %arr_alloc15, label %oob_trap, !prof !0
+arr_alloc15:
+	%_61 = getelementptr inbounds i32, i32* %_5, i32 %_59
+	%_62 = load i32, i32* %j
+	%_63 = icmp ult i32 %_62, %_15
+	br i1 %_63, label %arr_alloc16, label %oob_trap, !prof !0
+arr_alloc16:
+	%_64 = getelementptr inbounds i32, i32* %_5, i32 %_62
+	%_65 = load i32, i32* %_64
+	%_67 = add i32 %_65, 1
+	store i32 %_67, i32* %_61
+	%_68 = load i32, i32* %j
+	%_70 = add i32 %_68, 1
+	store i32 %_70, i32* %j
+	br label %while_cond12
+while_end14:
+	store i32 0, i32* %j
+	%_72 = getelementptr inbounds %IntArray, %IntArray* %_8, i32 0, i32 0
+	%_73 = load i32, i32* %_72
+	%_74 = sext i32 %_73 to i64
+	br label %unroll_cond17
+unroll_cond17:
+	%_75 = load i32, i32* %j
+	%_76 = sext i32 %_75 to i64
+	%_77 = add i64 %_76, 1
+	%_78 = icmp slt i64 %_77, %_74
+	br i1 %_78, label %unroll_loop18, label %unroll_end19
+unroll_loop18:
+	%_79 = load i32, i32* %sum
+	%_80 = load i32, i32* %j
+	%_81 = icmp ult i32 %_80, %_73
+	br i1 %_81, label %arr_alloc20, label %oob_trap, !prof !0
+arr_alloc20:
+	%_82 = getelementptr inbounds i32, i32* %_9, i32 %_80
+	%_83 = load i32, i32* %_82
+	%_84 = add i32 %_79, %_83
+	%_86 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_87 = load i32, i32* %_86
+	%_88 = icmp ult i32 0, %_87
+	br i1 %_88, label %arr_alloc21, label %oob_trap, !prof !0
+arr_alloc21:
+	%_89 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_90 = load i32, i32* %_89
+	%_91 = sub i32 %_84, %_90
+	store i32 %_91, i32* %sum
+	%_92 = load i32, i32* %j
+	%_94 = add i32 %_92, 1
+	store i32 %_94, i32* %j
+	%_97 = icmp ult i32 %_94, %_73
+	br i1 %_97, label %arr_alloc22, label %oob_trap, !prof !0
+arr_alloc22:
+	%_98 = getelementptr inbounds i32, i32* %_9, i32 %_94
+	%_99 = load i32, i32* %_98
+	%_100 = add i32 %_91, %_99
+	%_102 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_103 = load i32, i32* %_102
+	%_104 = icmp ult i32 0, %_103
+	br i1 %_104, label %arr_alloc23, label %oob_trap, !prof !0
+arr_alloc23:
+	%_105 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_106 = load i32, i32* %_105
+	%_107 = sub i32 %_100, %_106
+	store i32 %_107, i32* %sum
+	%_108 = load i32, i32* %j
+	%_110 = add i32 %_108, 1
+	store i32 %_110, i32* %j
+	br label %unroll_cond17
+unroll_end19:
+	br label %while_cond24
+while_cond24:
+	%_111 = load i32, i32* %j
+	%_112 = icmp slt i32 %_111, %_73
+	br i1 %_112, label %while_loop25, label %while_end26
+while_loop25:
+	%_113 = load i32, i32* %sum
+	%_114 = load i32, i32* %j
+	%_115 = icmp ult i32 %_114, %_73
+	br i1 %_115, label %arr_alloc27, label %oob_trap, !prof !0
+arr_alloc27:
+	%_116 = getelementptr inbounds i32, i32* %_9, i32 %_114
+	%_117 = load i32, i32* %_116
+	%_118 = add i32 %_113, %_117
+	%_120 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_121 = load i32, i32* %_120
+	%_122 = icmp ult i32 0, %_121
+	br i1 %_122, label %arr_alloc28, label %oob_trap, !prof !0
+arr_alloc28:
+	%_123 = getelementptr inbounds i32, i32* %_5, i32 0
+	%_124 = load i32, i32* %_123
+	%_125 = sub i32 %_118, %_124
+	store i32 %_125, i32* %sum
+	%_126 = load i32, i32* %j
+	%_128 = add i32 %_126, 1
+	store i32 %_128, i32* %j
+	br label %while_cond24
+while_end26:
+	%_129 = load i32, i32* %sum
+	%_130 = load i32, i32* %i
+	%_131 = getelementptr inbounds %IntArray, %IntArray* %_4, i32 0, i32 0
+	%_132 = load i32, i32* %_131
+	%_133 = icmp ult i32 %_130, %_132
+	br i1 %_133, label %arr_alloc29, label %oob_trap, !prof !0
+arr_alloc29:
+	%_134 = getelementptr inbounds i32, i32* %_5, i32 %_130
+	%_135 = load i32, i32* %_134
+	%_136 = add i32 %_129, %_135
+	store i32 %_136, i32* %sum
+	%_137 = load i32, i32* %i
+	%_139 = add i32 %_137, 1
+	store i32 %_139, i32* %i
+	br label %while_cond0
+while_end2:
+	%_140 = load i32, i32* %sum
+	ret i32 %_140
+oob_trap:
+	call void @throw_oob()
+	unreachable
+}
+
+define i32 @Loops.Counted(i8* %this) {
+	%i = alloca i32
+	%j = alloca i32
+	%sum = alloca i32
+	store i32 0, i32* %sum
+	store i32 0, i32* %i
+	br label %while_cond0
+while_cond0:
+	%_2 = load i32, i32* %i
+	%_4 = icmp slt i32 %_2, 4
+	br i1 %_4, label %while_loop1, label %while_end2
+while_loop1:
+	store i32 0, i32* %j
+	%_6 = load i32, i32* %sum
+	%_7 = load i32, i32* %i
+	%_9 = mul i32 %_7, 0
+	%_10 = add i32 %_6, %_9
+	store i32 %_10, i32* %sum
+	store i32 1, i32* %j
+	%_17 = mul i32 %_7, 1
+	%_18 = add i32 %_10, %_17
+	store i32 %_18, i32* %sum
+	%_21 = add i32 1, 1
+	store i32 %_21, i32* %j
+	%_25 = mul i32 %_7, %_21
+	%_26 = add i32 %_18, %_25
+	store i32 %_26, i32* %sum
+	%_29 = add i32 %_21, 1
+	store i32 %_29, i32* %j
+	%_32 = add i32 %_7, 1
+	store i32 %_32, i32* %i
+	br label %while_cond0
+while_end2:
+	%_33 = load i32, i32* %sum
+	ret i32 %_33
+}
+
@@ -1,22 +1,25 @@
 import ast.*;
 
 import java.io.*;
+import java.util.Arrays;
 
 public class Main {
     public static void main(String[] args) {
         try {
             var inputMethod = args[0];
-            var action = args[1];
+            // several actions may run on the same program, each writing its own output file
+            var actions = args[1].split(",");
             var filename = args[args.length - 2];
-            var outfilename = args[args.length - 1];
+            var outfilenames = args[args.length - 1].split(",");
+            if (outfilenames.length != actions.length) {
+                throw new IllegalArgumentException("expected " + actions.length + " output files, one per action");
+            }
 
             Program prog;
 
             if (inputMethod.equals("parse")) {
 		        Parser p = new Parser(new Lexer(new FileReader(filename)));
 		        prog = (Program) (p.parse().value);
-		        AstXMLSerializer xmlSerializer = new AstXMLSerializer();
-		        xmlSerializer.serialize(prog, outfilename);
             } else if (inputMethod.equals("unmarshal")) {
                 AstXMLSerializer xmlSerializer = new AstXMLSerializer();
                 prog = xmlSerializer.deserialize(new File(filename));
@@ -24,60 +27,75 @@ public class Main {
                 throw new UnsupportedOperationException("unknown input method " + inputMethod);
             }
 
-            var outFile = new PrintWriter(outfilename);
-            try {
-
-                if (action.equals("marshal")) {
-                    AstXMLSerializer xmlSerializer = new AstXMLSerializer();
-                    xmlSerializer.serialize(prog, outfilename);
-                } else if (action.equals("print")) {
-                    AstPrintVisitor astPrinter = new AstPrintVisitor();
-                    astPrinter.visit(prog);
-                    outFile.write(astPrinter.getString());
-
-                } else if (action.equals("semantic")) {
-                    SemanticChecksVisitor v = new SemanticChecksVisitor();
-                    prog.accept(v);
-                    PrintWriter out = new PrintWriter(outfilename);
-                    String output = v.isLegalProgram() ? "OK" : "ERROR";
-                    out.print(output);
-                    out.close();
+            // the rename arguments come first, then the compile options
+            int optionsFrom = Arrays.asList(actions).contains("rename") ? 6 : 2;
+            // built by the first action needing it, and again after a rename
+            ProgramAnalysis analysis = null;
 
-                } else if (action.equals("compile")) {
-                    LLVMVisitor v = new LLVMVisitor(prog);
-                    prog.accept(v);
-                    PrintWriter out = new PrintWriter(outfilename);
-                    String output = v.getLLVMProgram();
-                    out.print(output);
-                    out.close();
-                } else if (action.equals("rename")) {
-                    var type = args[2];
-                    var originalName = args[3];
-                    var originalLine = args[4];
-                    var newName = args[5];
+            for (int i = 0; i < actions.length; i++) {
+                var action = actions[i];
+                var outfilename = outfilenames[i];
+                var outFile = new PrintWriter(outfilename);
+                try {
 
-                    boolean isMethod;
-                    if (type.equals("var")) {
-                        isMethod = false;
-                        VariableRenameVisitor v = new VariableRenameVisitor(originalName, newName, Integer.parseInt(originalLine));
-                        prog.accept(v);
+                    if (action.equals("marshal")) {
                         AstXMLSerializer xmlSerializer = new AstXMLSerializer();
                         xmlSerializer.serialize(prog, outfilename);
-                    } else if (type.equals("method")) {
-                        isMethod = true;
-                        MethodRenameVisitor v = new MethodRenameVisitor(originalName, newName, Integer.parseInt(originalLine));
+                    } else if (action.equals("print")) {
+                        AstPrintVisitor astPrinter = new AstPrintVisitor();
+                        astPrinter.visit(prog);
+                        outFile.write(astPrinter.getString());
+
+                    } else if (action.equals("semantic")) {
+                        if (analysis == null) analysis = new ProgramAnalysis(prog);
+                        SemanticChecksVisitor v = new SemanticChecksVisitor(analysis);
                         prog.accept(v);
-                        AstXMLSerializer xmlSerializer = new AstXMLSerializer();
-                        xmlSerializer.serialize(prog, outfilename);
+                        PrintWriter out = new PrintWriter(outfilename);
+                        String output = v.isLegalProgram() ? "OK" : "ERROR";
+                        out.print(output);
+                        out.close();
+
+                    } else if (action.equals("compile")) {
+                        if (analysis == null) analysis = new ProgramAnalysis(prog);
+                        CompileOptions options = CompileOptions.fromArgs(args, optionsFrom, args.length - 2);
+                        LLVMVisitor v = new LLVMVisitor(analysis, options);
+                        prog.accept(v);
+                        PrintWriter out = new PrintWriter(outfilename);
+                        String output = v.getLLVMProgram();
+                        out.print(output);
+                        out.close();
+                    } else if (action.equals("rename")) {
+                        var type = args[2];
+                        var originalName = args[3];
+                        var originalLine = args[4];
+                        var newName = args[5];
+
+                        if (analysis == null) analysis = new ProgramAnalysis(prog);
+                        boolean isMethod;
+                        if (type.equals("var")) {
+                            isMethod = false;
+                            VariableRenameVisitor v = new VariableRenameVisitor(analysis, originalName, newName, Integer.parseInt(originalLine));
+                            prog.accept(v);
+                            AstXMLSerializer xmlSerializer = new AstXMLSerializer();
+                            xmlSerializer.serialize(prog, outfilename);
+                        } else if (type.equals("method")) {
+                            isMethod = true;
+                            MethodRenameVisitor v = new MethodRenameVisitor(analysis, originalName, newName, Integer.parseInt(originalLine));
+                            prog.accept(v);
+                            AstXMLSerializer xmlSerializer = new AstXMLSerializer();
+                            xmlSerializer.serialize(prog, outfilename);
+                        } else {
+                            throw new IllegalArgumentException("unknown rename type " + type);
+                        }
+                        // the renamed program has new symbols and bindings
+                        analysis = null;
                     } else {
-                        throw new IllegalArgumentException("unknown rename type " + type);
+                        throw new IllegalArgumentException("unknown command line action " + action);
                     }
-                } else {
-                    throw new IllegalArgumentException("unknown command line action " + action);
+                } finally {
+                    outFile.flush();
+                    outFile.close();
                 }
-            } finally {
-                outFile.flush();
-                outFile.close();
             }
 
         } catch (FileNotFoundException e) {
@@ -14,4 +14,9 @@ public class AddExpr extends BinaryExpr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.ADD_EXPR;
+    }
 }
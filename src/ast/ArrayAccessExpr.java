@@ -22,6 +22,11 @@ public class ArrayAccessExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.ARRAY_ACCESS_EXPR;
+    }
+
     public Expr arrayExpr() {
         return arrayExpr.e;
     }
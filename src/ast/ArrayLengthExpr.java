@@ -19,6 +19,11 @@ public class ArrayLengthExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.ARRAY_LENGTH_EXPR;
+    }
+
     public Expr arrayExpr() {
         return arrayExpr.e;
     }
@@ -10,6 +10,16 @@ public class AssignArrayStatement extends Statement {
     @XmlElement(required = true)
     private ExprWrapper rv;
 
+    /**
+     * Symbol of the declaration of the assigned variable, set by BindingVisitor
+     */
+    private STSymbol binding;
+
+    /**
+     * ID of the assigned variable in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public AssignArrayStatement() {
     }
@@ -25,6 +35,11 @@ public class AssignArrayStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.ASSIGN_ARRAY_STATEMENT;
+    }
+
     public String lv() {
         return lv;
     }
@@ -33,6 +48,14 @@ public class AssignArrayStatement extends Statement {
         this.lv = lv;
     }
 
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
     public Expr index() {
         return index.e;
     }
@@ -40,4 +63,12 @@ public class AssignArrayStatement extends Statement {
     public Expr rv() {
         return rv.e;
     }
+
+    public STSymbol binding() {
+        return binding;
+    }
+
+    public void setBinding(STSymbol binding) {
+        this.binding = binding;
+    }
 }
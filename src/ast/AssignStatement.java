@@ -8,6 +8,16 @@ public class AssignStatement extends Statement {
     @XmlElement(required = true)
     private ExprWrapper rv;
 
+    /**
+     * Symbol of the declaration of the assigned variable, set by BindingVisitor
+     */
+    private STSymbol binding;
+
+    /**
+     * ID of the assigned variable in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public AssignStatement() {
     }
@@ -22,6 +32,11 @@ public class AssignStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.ASSIGN_STATEMENT;
+    }
+
     public String lv() {
         return lv;
     }
@@ -30,7 +45,23 @@ public class AssignStatement extends Statement {
         this.lv = lv;
     }
 
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
     public Expr rv() {
         return rv.e;
     }
+
+    public STSymbol binding() {
+        return binding;
+    }
+
+    public void setBinding(STSymbol binding) {
+        this.binding = binding;
+    }
 }
@@ -0,0 +1,18 @@
+package ast;
+
+/**
+ * The concrete class of an AST node, one constant per class. Passes that branch on the kind of a node
+ * switch on node.kind() instead of comparing class names.
+ */
+public enum AstKind {
+    PROGRAM, CLASS_DECL, MAIN_CLASS, METHOD_DECL, FORMAL_ARG, VAR_DECL,
+    BLOCK_STATEMENT, IF_STATEMENT, WHILE_STATEMENT, SYSOUT_STATEMENT, ASSIGN_STATEMENT, ASSIGN_ARRAY_STATEMENT,
+    AND_EXPR, LT_EXPR, ADD_EXPR, SUBTRACT_EXPR, MULT_EXPR, ARRAY_ACCESS_EXPR, ARRAY_LENGTH_EXPR, METHOD_CALL_EXPR,
+    INTEGER_LITERAL_EXPR, TRUE_EXPR, FALSE_EXPR, IDENTIFIER_EXPR, THIS_EXPR, NEW_INT_ARRAY_EXPR, NEW_OBJECT_EXPR,
+    NOT_EXPR,
+    INT_TYPE, BOOL_TYPE, INT_ARRAY_TYPE, REF_TYPE;
+
+    public boolean isBinaryExpr() {
+        return this == AND_EXPR || this == LT_EXPR || this == ADD_EXPR || this == SUBTRACT_EXPR || this == MULT_EXPR;
+    }
+}
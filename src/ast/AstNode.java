@@ -17,6 +17,8 @@ public abstract class AstNode {
 
     abstract public void accept(Visitor v);
 
+    abstract public AstKind kind();
+
     /**
      * ST where ast node is declared
      */
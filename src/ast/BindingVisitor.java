@@ -0,0 +1,236 @@
+package ast;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds every identifier expression and every assignment's assigned variable to the symbol of its declaration:
+ * a VAR symbol for a parameter or local variable of the enclosing method, or a FIELD symbol for a field of the
+ * enclosing class or of one of its ancestors, holding the name of the class declaring it.
+ * Method calls are resolved to a CallSite, from their owner's static class and the called method's name.
+ * Later passes read the binding off the node instead of searching the scopes again. Names that aren't
+ * declared, and calls that don't resolve, are bound to null.
+ */
+public class BindingVisitor implements Visitor {
+    private final SymbolTable programSymbolTable;
+    private final Map<String, List<STSymbol>> vtables;
+    private final Map<String, ClassLayout> layouts;
+
+    public BindingVisitor(SymbolTable programSymbolTable,
+                          Map<String, List<STSymbol>> vtables, Map<String, ClassLayout> layouts) {
+        this.programSymbolTable = programSymbolTable;
+        this.vtables = vtables;
+        this.layouts = layouts;
+    }
+
+    private STSymbol resolve(int nameId, SymbolTable enclosingScope) {
+        SymbolTable declTable = STLookup.findDeclTable(nameId, enclosingScope, programSymbolTable);
+        return declTable == null ? null : declTable.getSymbol(nameId, false);
+    }
+
+    /**
+     * @return the call's resolution, or null if its owner isn't of a declared class or the class has no such
+     * method
+     */
+    private CallSite resolve(MethodCallExpr e) {
+        String receiverClass;
+        switch (e.ownerExpr().kind()) {
+            case THIS_EXPR:
+                if (e.enclosingScope() == null) return null;
+                receiverClass = e.enclosingScope().getParent().scopeName();
+                break;
+            case NEW_OBJECT_EXPR:
+                receiverClass = ((NewObjectExpr) e.ownerExpr()).classId();
+                break;
+            case IDENTIFIER_EXPR:
+                STSymbol owner = ((IdentifierExpr) e.ownerExpr()).binding();
+                if (owner == null) return null;
+                AstType type = ((VariableIntroduction) owner.declaration()).type();
+                if (type.kind() != AstKind.REF_TYPE) return null;
+                receiverClass = ((RefType) type).id();
+                break;
+            default:
+                return null;
+        }
+        ClassLayout layout = layouts.get(receiverClass);
+        if (layout == null) return null;
+        int slot = layout.methodSlot(e.methodId());
+        if (slot == -1) return null;
+        return new CallSite(receiverClass, slot, (MethodDecl) vtables.get(receiverClass).get(slot).declaration());
+    }
+
+    @Override
+    public void visit(Program program) {
+        program.mainClass().accept(this);
+        for (ClassDecl classDecl : program.classDecls()) {
+            classDecl.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+        for (MethodDecl methodDecl : classDecl.methoddecls()) {
+            methodDecl.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+        mainClass.mainStatement().accept(this);
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+        for (Statement statement : methodDecl.body()) {
+            statement.accept(this);
+        }
+        methodDecl.ret().accept(this);
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        for (Statement statement : blockStatement.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        ifStatement.cond().accept(this);
+        ifStatement.thencase().accept(this);
+        ifStatement.elsecase().accept(this);
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        whileStatement.cond().accept(this);
+        whileStatement.body().accept(this);
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        sysoutStatement.arg().accept(this);
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        assignStatement.setBinding(resolve(assignStatement.nameId(), assignStatement.enclosingScope()));
+        assignStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        assignArrayStatement.setBinding(resolve(assignArrayStatement.nameId(), assignArrayStatement.enclosingScope()));
+        assignArrayStatement.index().accept(this);
+        assignArrayStatement.rv().accept(this);
+    }
+
+    private void visit(BinaryExpr e) {
+        e.e1().accept(this);
+        e.e2().accept(this);
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        e.arrayExpr().accept(this);
+        e.indexExpr().accept(this);
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        e.arrayExpr().accept(this);
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        e.ownerExpr().accept(this);
+        for (Expr actual : e.actuals()) {
+            actual.accept(this);
+        }
+        e.setCallSite(resolve(e));
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+        e.setBinding(resolve(e.nameId(), e.enclosingScope()));
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        e.lengthExpr().accept(this);
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        e.e().accept(this);
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+    }
+
+    @Override
+    public void visit(RefType t) {
+    }
+}
@@ -32,6 +32,11 @@ public class BlockStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.BLOCK_STATEMENT;
+    }
+
     public List<Statement> statements() {
         return statements;
     }
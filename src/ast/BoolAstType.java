@@ -9,5 +9,10 @@ public class BoolAstType extends AstType {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.BOOL_TYPE;
+    }
 }
 
@@ -0,0 +1,30 @@
+package ast;
+
+/**
+ * What a method call resolves to statically: the class of its owner's static type, the slot of the called
+ * method in that class's vtable, and the declaration the vtable holds there. Classes inheriting from the
+ * static class may hold an override at the same slot.
+ */
+public class CallSite {
+    private final String receiverClass;
+    private final int slot;
+    private final MethodDecl target;
+
+    public CallSite(String receiverClass, int slot, MethodDecl target) {
+        this.receiverClass = receiverClass;
+        this.slot = slot;
+        this.target = target;
+    }
+
+    public String receiverClass() {
+        return receiverClass;
+    }
+
+    public int slot() {
+        return slot;
+    }
+
+    public MethodDecl target() {
+        return target;
+    }
+}
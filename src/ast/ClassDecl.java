@@ -27,6 +27,13 @@ public class ClassDecl extends AstNode {
      */
     private SymbolTable enclosedScope;
 
+    /**
+     * IDs of the class's name and of its superclass's name in the program's Names, set by SymbolTableBuilder.
+     * -1 until then
+     */
+    private int nameId = -1;
+    private int superNameId = -1;
+
     public ClassDecl(String name, String superName, List<VarDecl> fields, List<MethodDecl> methoddecls) {
         super();
         this.name = name;
@@ -39,6 +46,10 @@ public class ClassDecl extends AstNode {
         v.visit(this);
     }
 
+    public AstKind kind() {
+        return AstKind.CLASS_DECL;
+    }
+
     public String name() {
         return name;
     }
@@ -47,6 +58,22 @@ public class ClassDecl extends AstNode {
         return superName;
     }
 
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
+    public int superNameId() {
+        return superNameId;
+    }
+
+    public void setSuperNameId(int superNameId) {
+        this.superNameId = superNameId;
+    }
+
     public List<VarDecl> fields() {
         return fields;
     }
@@ -0,0 +1,48 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Class hierarchy analysis: finds which method implementations a call may reach, given the static type
+ * of its owner. A variable of class C may refer to an instance of C or of any class inheriting from it,
+ * and each of those classes' vtable holds the implementation it uses at the called method's slot.
+ */
+public class ClassHierarchyAnalysis {
+    private final InheritanceForest forest;
+    private final Map<String, List<STSymbol>> vtables;
+
+    public ClassHierarchyAnalysis(InheritanceForest forest, Map<String, List<STSymbol>> vtables) {
+        this.forest = forest;
+        this.vtables = vtables;
+    }
+
+    /**
+     * @return the classes whose instances a variable of class staticClass may refer to - the class itself
+     * followed by its descendants
+     */
+    public List<String> possibleClasses(String staticClass) {
+        List<String> res = new ArrayList<>();
+        res.add(staticClass);
+        List<ClassDecl> descendants = forest.getDescendants(staticClass);
+        if (descendants != null) {
+            for (ClassDecl descendant : descendants) {
+                res.add(descendant.name());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Groups classes by the implementation their vtable holds at the given slot.
+     * @return map from the LLVM function name of each implementation (Class.method) to the classes using it,
+     * both in the order of the classes list
+     */
+    public Map<String, List<String>> targets(List<String> classes, int slot) {
+        Map<String, List<String>> res = new LinkedHashMap<>();
+        for (String className : classes) {
+            STSymbol method = vtables.get(className).get(slot);
+            res.computeIfAbsent(method.className() + "." + method.name(), k -> new ArrayList<>()).add(className);
+        }
+        return res;
+    }
+}
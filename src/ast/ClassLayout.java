@@ -0,0 +1,61 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Layout of a class's instances and vtable, indexed by name: the index of each field in the class's struct
+ * type, where index 0 holds the VT ptr, and the vtable slot of each method. Built once per class from its
+ * instance template and vtable, so that accesses don't scan them.
+ */
+public class ClassLayout {
+    private final Map<String, Integer> fieldIndices;
+    private final Map<String, Integer> methodSlots;
+    private final int pointerFieldCount;
+    private final int vtableSize;
+
+    public ClassLayout(List<STSymbol> instanceTemplate, List<STSymbol> vtable) {
+        fieldIndices = new HashMap<>();
+        methodSlots = new HashMap<>();
+        int pointers = 0;
+        for (int i = 0; i < instanceTemplate.size(); i++) {
+            STSymbol field = instanceTemplate.get(i);
+            fieldIndices.put(field.name(), i + 1);
+            AstKind typeKind = ((VariableIntroduction) field.declaration()).type().kind();
+            if (typeKind == AstKind.REF_TYPE || typeKind == AstKind.INT_ARRAY_TYPE) pointers++;
+        }
+        for (int slot = 0; slot < vtable.size(); slot++) {
+            methodSlots.put(vtable.get(slot).name(), slot);
+        }
+        pointerFieldCount = pointers;
+        vtableSize = vtable.size();
+    }
+
+    public boolean hasField(String name) {
+        return fieldIndices.containsKey(name);
+    }
+
+    /**
+     * @return the field's index in the struct type, or -1 if the class has no such field
+     */
+    public int fieldIndex(String name) {
+        return fieldIndices.getOrDefault(name, -1);
+    }
+
+    /**
+     * @return the method's slot in the vtable, or -1 if the class has no such method
+     */
+    public int methodSlot(String name) {
+        return methodSlots.getOrDefault(name, -1);
+    }
+
+    /**
+     * Number of fields holding an object or an array
+     */
+    public int pointerFieldCount() {
+        return pointerFieldCount;
+    }
+
+    public int vtableSize() {
+        return vtableSize;
+    }
+}
@@ -0,0 +1,150 @@
+package ast;
+
+/**
+ * Optional settings of the compile action, given on the command line between the action and the file names:
+ * java -jar mjavac.jar unmarshal compile [options] inputProg.xml out.ll
+ */
+public class CompileOptions {
+    /**
+     * Default number of AST nodes a loop may grow to when it's unrolled
+     */
+    public static final int DEFAULT_UNROLL_BUDGET = 64;
+    /**
+     * Default number of steps the compile time evaluation may take
+     */
+    public static final long DEFAULT_EVALUATE_FUEL = 10_000_000;
+
+    private int unrollBudget;
+    private boolean peephole;
+    private boolean evaluate;
+    private long evaluateFuel;
+    private boolean gc;
+    private boolean allocStats;
+    private boolean profile;
+    private boolean memoize;
+
+    public CompileOptions() {
+        unrollBudget = DEFAULT_UNROLL_BUDGET;
+        peephole = true;
+        evaluate = false;
+        evaluateFuel = DEFAULT_EVALUATE_FUEL;
+        gc = false;
+        allocStats = false;
+        profile = false;
+        memoize = false;
+    }
+
+    /**
+     * Parses the options in args[from, to)
+     */
+    public static CompileOptions fromArgs(String[] args, int from, int to) {
+        CompileOptions options = new CompileOptions();
+        for (int i = from; i < to; i++) {
+            options.parse(args[i]);
+        }
+        // an evaluated program only prints its output, so the runtimes these options add would never run
+        if (options.evaluate && (options.gc || options.allocStats || options.profile)) {
+            throw new IllegalArgumentException("--evaluate can't be combined with --gc, --alloc-stats or --profile");
+        }
+        return options;
+    }
+
+    private void parse(String arg) {
+        if (arg.startsWith("--unroll-budget=")) {
+            unrollBudget = parseNonNegative(arg, "--unroll-budget=".length());
+        } else if (arg.equals("--no-peephole")) {
+            peephole = false;
+        } else if (arg.equals("--evaluate")) {
+            evaluate = true;
+        } else if (arg.startsWith("--evaluate-fuel=")) {
+            evaluate = true;
+            evaluateFuel = parseNonNegative(arg, "--evaluate-fuel=".length());
+        } else if (arg.equals("--gc")) {
+            gc = true;
+        } else if (arg.equals("--alloc-stats")) {
+            allocStats = true;
+        } else if (arg.equals("--profile")) {
+            profile = true;
+        } else if (arg.equals("--memoize")) {
+            memoize = true;
+        } else {
+            throw new IllegalArgumentException("unknown compile option " + arg);
+        }
+    }
+
+    private static int parseNonNegative(String arg, int valueStart) {
+        int value;
+        try {
+            value = Integer.parseInt(arg.substring(valueStart));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad value for compile option " + arg);
+        }
+        if (value < 0) {
+            throw new IllegalArgumentException("bad value for compile option " + arg);
+        }
+        return value;
+    }
+
+    /**
+     * --unroll-budget=N: how many AST nodes an unrolled loop may have, counting every copy of its
+     * condition and body, and of the loops unrolled inside them. 0 disables unrolling.
+     */
+    public int unrollBudget() {
+        return unrollBudget;
+    }
+
+    /**
+     * --no-peephole turns off LLVMPeephole, leaving the program as LLVMVisitor emitted it
+     */
+    public boolean peephole() {
+        return peephole;
+    }
+
+    /**
+     * --evaluate: run the program at compile time with ProgramEvaluator, and if it finishes, emit a main that
+     * only prints its output. Can't be combined with --gc, --alloc-stats or --profile.
+     */
+    public boolean evaluate() {
+        return evaluate;
+    }
+
+    /**
+     * --evaluate-fuel=N: how many steps the compile time evaluation may take before falling back to compiling
+     * the program. Implies --evaluate.
+     */
+    public long evaluateFuel() {
+        return evaluateFuel;
+    }
+
+    /**
+     * --gc: allocate from a garbage collected heap instead of the arena, which never frees memory. The
+     * generated code registers its pointers in a shadow stack for the collector to find.
+     */
+    public boolean gc() {
+        return gc;
+    }
+
+    /**
+     * --alloc-stats: count the objects and bytes the program allocates, per class and for int arrays per range
+     * of lengths, and print them to stderr when it exits
+     */
+    public boolean allocStats() {
+        return allocStats;
+    }
+
+    /**
+     * --profile: count the calls of each method and the cycles spent in it, with and without the methods it
+     * calls, and print them to stderr when the program exits
+     */
+    public boolean profile() {
+        return profile;
+    }
+
+    /**
+     * --memoize: keep the results of the recursive methods PurityAnalysis finds pure in a table, keyed on their
+     * arguments, so that each is computed once per distinct arguments
+     */
+    public boolean memoize() {
+        return memoize;
+    }
+}
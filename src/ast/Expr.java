@@ -1,6 +1,26 @@
 package ast;
 
 public abstract class Expr extends AstNode {
+    /**
+     * Static type of the expression, computed once by SemanticChecksVisitor. null if the expression is illegal,
+     * which typed tells apart from not computed yet
+     */
+    private AstType staticType;
+    private boolean typed;
+
     public Expr() {
     }
+
+    public boolean isTyped() {
+        return typed;
+    }
+
+    public AstType staticType() {
+        return staticType;
+    }
+
+    public void setStaticType(AstType staticType) {
+        this.staticType = staticType;
+        this.typed = true;
+    }
 }
@@ -8,4 +8,9 @@ public class FalseExpr extends Expr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.FALSE_EXPR;
+    }
 }
@@ -15,4 +15,9 @@ public class FormalArg extends VariableIntroduction {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.FORMAL_ARG;
+    }
 }
@@ -6,6 +6,16 @@ public class IdentifierExpr extends Expr {
     @XmlElement(required = true)
     private String id;
 
+    /**
+     * Symbol of the declaration of the identifier, set by BindingVisitor
+     */
+    private STSymbol binding;
+
+    /**
+     * ID of the identifier in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public IdentifierExpr() {
     }
@@ -19,6 +29,11 @@ public class IdentifierExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.IDENTIFIER_EXPR;
+    }
+
     public String id() {
         return id;
     }
@@ -26,4 +41,20 @@ public class IdentifierExpr extends Expr {
     public void setId(String id) {
         this.id = id;
     }
+
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
+    public STSymbol binding() {
+        return binding;
+    }
+
+    public void setBinding(STSymbol binding) {
+        this.binding = binding;
+    }
 }
@@ -27,6 +27,11 @@ public class IfStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.IF_STATEMENT;
+    }
+
     public Expr cond() {
         return cond.e;
     }
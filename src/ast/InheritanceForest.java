@@ -8,6 +8,13 @@ public class InheritanceForest {
 		ForestNode superNode;
 		ArrayList<ForestNode> children;
 		ClassDecl value;
+		/*
+		 * position of the class in a preorder walk of its tree, and the position after its last descendant:
+		 * the descendants are exactly the classes in between
+		 */
+		int pre;
+		int post;
+		List<ClassDecl> childrenView;
 		
 		public ForestNode(ForestNode superNode, ClassDecl value) {
 			this.superNode = superNode;
@@ -21,56 +28,28 @@ public class InheritanceForest {
 
 	}
 	
-	/*helper Linked Lists for builder*/
-	private class LLclasses{
-		private class node{
-			node next;
-			ClassDecl value;
-		}
-		node head;
-		
-		public LLclasses() {head = null;}
-		
-		void add(ClassDecl cls) {
-			node newHead = new node();
-			newHead.value = cls;
-			newHead.next = this.head;
-			head = newHead;
-		}
-		
-		void removeHead() {
-			if(head == null) return;
-			head = head.next;
-		}
-		
-		void removeNext(node curr) {
-			if(curr.next == null) return;
-			curr.next = curr.next.next;
-		}
-		
-	}
-	
 	private ArrayList<ForestNode> trees;
 	private HashMap<String, ForestNode> nodeMap;
 	private MainClass mainClass;
 	private boolean isLegalForest;
+	/*all classes in preorder, tree after tree*/
+	private List<ClassDecl> preorder;
+	private List<ClassDecl> roots;
 	
+	/**
+	 * Builds the forest in one pass over the classes in declaration order - a superclass must be declared
+	 * before its subclasses (req 1), so it's always in the forest by the time they're added.
+	 * Then numbers the classes in preorder, for constant time isA and descendant lists.
+	 */
 	public InheritanceForest(Program prog) {
 		isLegalForest = true;
 		this.mainClass = prog.mainClass();
 		trees = new ArrayList<>();
 		nodeMap = new HashMap<>();
+		preorder = Collections.emptyList();
+		roots = Collections.emptyList();
 		
-		ForestNode tmp;
-		LLclasses classBag = new LLclasses();
-
-		//for semantic checks
-		Map<String, Integer> classDeclNamesAndOrder = new HashMap<>();
-		
-		/*add all roots to the ArrayList trees*/
-		for(int i = 0; i < prog.classDecls().size(); i++) {
-			ClassDecl cls = prog.classDecls().get(i);
-			classDeclNamesAndOrder.put(cls.name(), i);
+		for(ClassDecl cls : prog.classDecls()) {
 			if(cls.superName() == null) {
 				// semantic check - no name repetition (req 3)
 				if(nodeMap.containsKey(cls.name()) || cls.name().equals(mainClass.name())){
@@ -78,60 +57,71 @@ public class InheritanceForest {
 					return;
 				}
 
-				tmp = new ForestNode(null, cls);
+				ForestNode tmp = new ForestNode(null, cls);
 				trees.add(tmp);
 				nodeMap.put(cls.name(), tmp);
 			}
 			else {
-				classBag.add(cls);
-			}
-		}
-		
-		LLclasses.node curr;
-		String superName;
-
-		/*add all other classes to the forest*/
-		while(classBag.head != null) {
-			superName = classBag.head.value.superName();
-			//semantic checks
-			if(!legalClassDecl(classBag.head.value, superName, classDeclNamesAndOrder)) return;
-
-			if(nodeMap.containsKey(superName)){
-				addToForest(classBag.head.value);
-				classBag.removeHead();
-				continue;
-			}
-			curr = classBag.head;
-			while(curr.next != null) {
-				superName = curr.next.value.superName();
 				//semantic checks
-				if(!legalClassDecl(curr.next.value, superName, classDeclNamesAndOrder)) return;
-
-				if(nodeMap.containsKey(superName)) {
-					addToForest(curr.next.value);
-					classBag.removeNext(curr);
-				}
-				else curr = curr.next;
+				if(!legalClassDecl(cls, cls.superName())) return;
+				addToForest(cls);
 			}
 		}
+		numberNodes();
 	}
 	
-	private boolean legalClassDecl(ClassDecl cls, String superName, Map<String, Integer> namesAndOrder){
+	private boolean legalClassDecl(ClassDecl cls, String superName){
 		// checks:
-		//1. super is defined
+		//1. super is defined before self (req 1) - only classes declared before are in the forest
 		//2. super is not self
 		//3. super is not main (req 2)
 		//4. class name is not a repetition
-		//5. super is defined before self (req 1)
 		//
-		if(!namesAndOrder.containsKey(superName) || superName.equals(cls.name()) || superName.equals(mainClass.name()) ||
-				nodeMap.containsKey(cls.name()) || cls.name().equals(mainClass.name()) ||
-				namesAndOrder.get(superName) >= namesAndOrder.get(cls.name())){
+		if(!nodeMap.containsKey(superName) || superName.equals(cls.name()) || superName.equals(mainClass.name()) ||
+				nodeMap.containsKey(cls.name()) || cls.name().equals(mainClass.name())){
 			isLegalForest = false;
 		}
 		return isLegalForest;
 	}
 	
+	/*
+	 * Walks each tree in preorder, without recursion so that deep hierarchies don't overflow the stack,
+	 * numbering the classes and caching the lists the getters return
+	 */
+	private void numberNodes() {
+		List<ClassDecl> order = new ArrayList<>(nodeMap.size());
+		List<ClassDecl> rootList = new ArrayList<>(trees.size());
+		Deque<ForestNode> stack = new ArrayDeque<>();
+		Deque<Iterator<ForestNode>> childIterators = new ArrayDeque<>();
+		for(ForestNode root : trees) {
+			rootList.add(root.value);
+			root.pre = order.size();
+			order.add(root.value);
+			stack.push(root);
+			childIterators.push(root.children == null ? Collections.emptyIterator() : root.children.iterator());
+			while(!stack.isEmpty()) {
+				if(childIterators.peek().hasNext()) {
+					ForestNode child = childIterators.peek().next();
+					child.pre = order.size();
+					order.add(child.value);
+					stack.push(child);
+					childIterators.push(child.children == null ? Collections.emptyIterator() : child.children.iterator());
+					continue;
+				}
+				childIterators.pop();
+				ForestNode node = stack.pop();
+				node.post = order.size();
+				if(node.children != null) {
+					List<ClassDecl> children = new ArrayList<>(node.children.size());
+					for(ForestNode child : node.children) children.add(child.value);
+					node.childrenView = Collections.unmodifiableList(children);
+				}
+			}
+		}
+		preorder = Collections.unmodifiableList(order);
+		roots = Collections.unmodifiableList(rootList);
+	}
+	
 	
 	private void addToForest(ClassDecl cls) {
 		if(!nodeMap.containsKey(cls.superName())) return;
@@ -144,28 +134,21 @@ public class InheritanceForest {
 	
 	public MainClass mainClass() {return mainClass;}
 	
+	/**
+	 * @return the class's direct subclasses, in declaration order, or null if it has none. The list can't be modified.
+	 */
 	public List<ClassDecl> getChildren(String className) {
-		if(nodeMap.get(className).children == null) return null;
-		List<ClassDecl> res = new ArrayList<>();
-		for(ForestNode child : nodeMap.get(className).children) {
-			res.add(child.value);
-		}
-		return res;
+		return nodeMap.get(className).childrenView;
 	}
 	
+	/**
+	 * @return all the classes inheriting from the class, in preorder, or null if there are none. The list is a
+	 * view of the forest's preorder and can't be modified.
+	 */
 	public List<ClassDecl> getDescendants(String className){
-		if(nodeMap.get(className).children == null) return null;
-		return recGetDecendents(className);
-	}
-	
-	private List<ClassDecl> recGetDecendents(String className){
-		if(nodeMap.get(className).children == null) return new ArrayList<ClassDecl>();
-		List<ClassDecl> res = getChildren(className);
-		List<ClassDecl> tmp = getChildren(className);
-		for(ClassDecl child : tmp) {
-			res.addAll(recGetDecendents(child.name()));
-		}
-		return res;
+		ForestNode node = nodeMap.get(className);
+		if(node.children == null) return null;
+		return preorder.subList(node.pre + 1, node.post);
 	}
 	
 	public List<ClassDecl> getAncestors(String className){
@@ -181,17 +164,11 @@ public class InheritanceForest {
 
 	public boolean isA(String descendant, String ancestor){
 		if(descendant.equals(ancestor)) return true;
-		//note that we could have just used getAncestors but this is more efficient
-		boolean res = false;
-		ClassDecl curr = nodeMap.get(descendant).value;
-		while(curr.superName() != null){
-			if(curr.superName().equals(ancestor)){
-				res = true;
-				break;
-			}
-			curr = nodeMap.get(curr.superName()).value;
-		}
-		return res;
+		ForestNode descendantNode = nodeMap.get(descendant);
+		ForestNode ancestorNode = nodeMap.get(ancestor);
+		if(ancestorNode == null) return false;
+		//the preorder numbers of the descendants are the ones in the ancestor's range
+		return ancestorNode.pre < descendantNode.pre && descendantNode.pre < ancestorNode.post;
 	}
 	
 	public ClassDecl getSuper(String className) {
@@ -205,11 +182,7 @@ public class InheritanceForest {
 	}
 
 	public List<ClassDecl> getRoots(){
-		List<ClassDecl> res = new ArrayList<>();
-		for(ForestNode node : trees){
-			res.add(node.value);
-		}
-		return res;
+		return roots;
 	}
 	
 	/*
@@ -9,4 +9,9 @@ public class IntArrayAstType extends AstType {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.INT_ARRAY_TYPE;
+    }
 }
@@ -19,6 +19,11 @@ public class IntegerLiteralExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.INTEGER_LITERAL_EXPR;
+    }
+
     public int num() {
         return num;
     }
@@ -0,0 +1,175 @@
+package ast;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the methods of the LLVM program that compile to identical functions, such as getters of sibling
+ * classes that only differ by name. Two functions are identical if they are once their parameters, registers
+ * and labels are renamed in order of appearance. One of them is kept, and every reference to the others -
+ * vtable entries and direct calls - is redirected to it.
+ * Merging functions may make their callers identical, so this is repeated until nothing more merges.
+ */
+public class LLVMFunctionMerger {
+    private static final Pattern HEADER = Pattern.compile("define (.+?) (@[-\\w$.]+)\\((.*)\\) \\{");
+    private static final Pattern LOCAL = Pattern.compile("%[-A-Za-z$._0-9]+");
+    private static final Pattern LABEL = Pattern.compile("([-\\w$.]+):(.*)");
+    private static final Pattern TYPE = Pattern.compile("(%[-A-Za-z$._0-9]+) = type (.*)");
+
+    /**
+     * A function definition: its name and lines, from define to the closing brace
+     */
+    private static class Function {
+        final String name;
+        final List<String> lines;
+
+        Function(String name, List<String> lines) {
+            this.name = name;
+            this.lines = lines;
+        }
+    }
+
+    public static String merge(String program) {
+        while (true) {
+            Map<String, String> replacements = findDuplicates(program);
+            if (replacements.isEmpty()) return program;
+            program = replaceFunctions(program, replacements);
+        }
+    }
+
+    /**
+     * @return map from each method's name to the name of the first method identical to it, for the methods
+     * which have one
+     */
+    private static Map<String, String> findDuplicates(String program) {
+        Map<String, String> firstByBody = new HashMap<>();
+        Map<String, String> res = new HashMap<>();
+        Map<String, String> types = types(program);
+        for (Function function : functions(program)) {
+            // only methods are merged, their names are Class.method
+            if (!function.name.contains(".")) continue;
+            String body = normalize(function, types);
+            String first = firstByBody.putIfAbsent(body, function.name);
+            if (first != null) {
+                res.put(function.name, first);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * @return map from the name of each named type the program defines, such as %IntArray, to its definition
+     */
+    private static Map<String, String> types(String program) {
+        Map<String, String> res = new HashMap<>();
+        for (String line : program.split("\n")) {
+            Matcher m = TYPE.matcher(line);
+            if (m.matches()) {
+                res.put(m.group(1), m.group(2));
+            }
+        }
+        return res;
+    }
+
+    private static List<Function> functions(String program) {
+        List<Function> res = new ArrayList<>();
+        List<String> lines = null;
+        String name = null;
+        for (String line : program.split("\n")) {
+            Matcher m = HEADER.matcher(line);
+            if (lines == null && m.matches()) {
+                lines = new ArrayList<>();
+                name = m.group(2);
+            }
+            if (lines != null) {
+                lines.add(line);
+                if (line.equals("}")) {
+                    res.add(new Function(name, lines));
+                    lines = null;
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * The function's text without its name, and with its parameters, registers and labels renamed to
+     * %0, %1, ... in order of appearance. Named types are replaced with their definitions, so that methods
+     * of unrelated classes with the same layout, such as getters of sibling classes, still compare equal.
+     */
+    private static String normalize(Function function, Map<String, String> types) {
+        Map<String, String> names = new HashMap<>();
+        StringBuilder res = new StringBuilder();
+        Matcher header = HEADER.matcher(function.lines.get(0));
+        header.matches();
+        res.append(header.group(1)).append(" (").append(rename(header.group(3), names, types)).append(")\n");
+        for (String line : function.lines.subList(1, function.lines.size())) {
+            String instruction = line.trim();
+            Matcher label = LABEL.matcher(instruction);
+            if (label.matches()) {
+                instruction = rename("%" + label.group(1), names, types) + ":" + label.group(2);
+            } else {
+                instruction = rename(instruction, names, types);
+            }
+            res.append(instruction).append("\n");
+        }
+        return res.toString();
+    }
+
+    private static String rename(String text, Map<String, String> names, Map<String, String> types) {
+        Matcher m = LOCAL.matcher(text);
+        StringBuilder res = new StringBuilder();
+        while (m.find()) {
+            if (types.containsKey(m.group())) {
+                m.appendReplacement(res, Matcher.quoteReplacement(types.get(m.group())));
+                continue;
+            }
+            String name = names.computeIfAbsent(m.group(), k -> "%" + names.size());
+            m.appendReplacement(res, Matcher.quoteReplacement(name));
+        }
+        m.appendTail(res);
+        return res.toString();
+    }
+
+    /**
+     * Drops the definitions of the replaced functions, and redirects references to them to their replacements
+     */
+    private static String replaceFunctions(String program, Map<String, String> replacements) {
+        StringBuilder res = new StringBuilder();
+        boolean dropping = false;
+        boolean dropped = false;
+        for (String line : program.split("\n", -1)) {
+            Matcher header = HEADER.matcher(line);
+            if (!dropping && header.matches() && replacements.containsKey(header.group(2))) {
+                dropping = true;
+                continue;
+            }
+            if (dropping) {
+                if (line.equals("}")) {
+                    dropping = false;
+                    dropped = true;
+                }
+                continue;
+            }
+            // the blank line separating the dropped function from the next one
+            if (dropped && line.isEmpty()) {
+                dropped = false;
+                continue;
+            }
+            dropped = false;
+            res.append(line).append("\n");
+        }
+        res.setLength(res.length() - 1);
+
+        Pattern reference = Pattern.compile("@[-\\w$.]+");
+        Matcher m = reference.matcher(res.toString());
+        StringBuilder redirected = new StringBuilder();
+        while (m.find()) {
+            String target = replacements.getOrDefault(m.group(), m.group());
+            m.appendReplacement(redirected, Matcher.quoteReplacement(target));
+        }
+        m.appendTail(redirected);
+        return redirected.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package ast;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Peephole optimizer run over the LLVM program text LLVMVisitor emits, one function at a time:
+ * - copies and constant materializations (add i32 0, N / add i1 0, x / add i32 x, 0) are dropped and
+ *   their value is used directly as the operand
+ * - sub i1 1, x (not x) becomes xor i1 x, 1
+ * - a bitcast of a bitcast casts the original value instead, a bitcast to the same type is dropped, and a
+ *   bitcast repeating one already done in the same block (or in the entry block) reuses its result
+ * - a load from a local variable's alloca in a block where the variable was already stored or loaded reuses
+ *   that value, and a load right after a store to the same pointer reuses the stored value
+ * The emitted code defines each register before any use of it in program text, which lets the pass substitute
+ * values in a single forward pass. Locals' allocas are only ever loaded and stored directly, so no other store or
+ * call can write them.
+ */
+public class LLVMPeephole {
+    private static final Pattern TOKEN = Pattern.compile("%[-A-Za-z$._0-9]+");
+    private static final Pattern COPY = Pattern.compile("(%[-\\w$.]+) = add (i32|i1) (?:0, (\\S+)|(\\S+), 0)");
+    private static final Pattern NOT = Pattern.compile("(%[-\\w$.]+) = sub i1 1, (\\S+)");
+    private static final Pattern BITCAST = Pattern.compile("(%[-\\w$.]+) = bitcast (.+?) (\\S+) to (.+)");
+    private static final Pattern ALLOCA = Pattern.compile("(%[-\\w$.]+) = alloca .+");
+    private static final Pattern STORE = Pattern.compile("store (.+?) (\\S+), (.+?)\\* (\\S+)");
+    private static final Pattern LOAD = Pattern.compile("(%[-\\w$.]+) = load (.+?), (.+?)\\* (\\S+)");
+    private static final Pattern LABEL = Pattern.compile("[-\\w$.]+:.*");
+
+    /**
+     * Operand each dropped register was replaced with
+     */
+    private final Map<String, String> replacements;
+    /**
+     * Source type and value of each bitcast, by the register it defines
+     */
+    private final Map<String, String[]> bitcasts;
+    /**
+     * Register holding the result of each bitcast (by "source type, value, target type") available in the
+     * current block
+     */
+    private final Map<String, String> availableBitcasts;
+    private final Map<String, String> entryBlockBitcasts;
+    private final Set<String> allocas;
+    /**
+     * Current value of each local variable's alloca in the current block
+     */
+    private final Map<String, String> slotValues;
+    private final List<String> output;
+    private boolean inEntryBlock;
+    /**
+     * Pointer and value of the store emitted last, if it was the last instruction emitted
+     */
+    private String lastStorePtr;
+    private String lastStoreValue;
+
+    private LLVMPeephole() {
+        replacements = new HashMap<>();
+        bitcasts = new HashMap<>();
+        availableBitcasts = new HashMap<>();
+        entryBlockBitcasts = new HashMap<>();
+        allocas = new HashSet<>();
+        slotValues = new HashMap<>();
+        output = new ArrayList<>();
+    }
+
+    public static String optimize(String program) {
+        StringBuilder res = new StringBuilder();
+        List<String> function = null;
+        for (String line : program.split("\n", -1)) {
+            if (function == null && line.startsWith("define ") && line.endsWith("{")) {
+                function = new ArrayList<>();
+                res.append(line).append("\n");
+            } else if (function != null && line.equals("}")) {
+                for (String optimized : new LLVMPeephole().optimizeFunction(function)) {
+                    res.append(optimized).append("\n");
+                }
+                res.append(line).append("\n");
+                function = null;
+            } else if (function != null) {
+                function.add(line);
+            } else {
+                res.append(line).append("\n");
+            }
+        }
+        // split leaves an empty string after the last newline
+        res.setLength(res.length() - 1);
+        return res.toString();
+    }
+
+    private List<String> optimizeFunction(List<String> body) {
+        inEntryBlock = true;
+        for (String line : body) {
+            visitLine(substitute(line));
+        }
+        // a use emitted before its def is the only thing the forward pass can miss
+        List<String> res = new ArrayList<>();
+        for (String line : output) {
+            res.add(substitute(line));
+        }
+        return res;
+    }
+
+    private String substitute(String line) {
+        if (replacements.isEmpty() || line.indexOf('%') == -1) return line;
+        Matcher m = TOKEN.matcher(line);
+        StringBuilder res = new StringBuilder();
+        while (m.find()) {
+            String replacement = resolve(m.group());
+            m.appendReplacement(res, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(res);
+        return res.toString();
+    }
+
+    private String resolve(String operand) {
+        while (replacements.containsKey(operand)) {
+            operand = replacements.get(operand);
+        }
+        return operand;
+    }
+
+    private void replace(String register, String operand) {
+        replacements.put(register, resolve(operand));
+    }
+
+    private void visitLine(String line) {
+        String instruction = line.trim();
+        Matcher m;
+        if (LABEL.matcher(instruction).matches()) {
+            inEntryBlock = false;
+            availableBitcasts.clear();
+            slotValues.clear();
+        } else if ((m = COPY.matcher(instruction)).matches()) {
+            replace(m.group(1), m.group(3) != null ? m.group(3) : m.group(4));
+            return;
+        } else if ((m = NOT.matcher(instruction)).matches()) {
+            line = line.replace(instruction, String.format("%s = xor i1 %s, 1", m.group(1), m.group(2)));
+        } else if ((m = BITCAST.matcher(instruction)).matches()) {
+            if (visitBitcast(m.group(1), m.group(2), m.group(3), m.group(4))) return;
+            String[] source = bitcasts.get(m.group(1));
+            line = line.replace(instruction,
+                    String.format("%s = bitcast %s %s to %s", m.group(1), source[0], source[1], m.group(4)));
+        } else if ((m = ALLOCA.matcher(instruction)).matches()) {
+            allocas.add(m.group(1));
+        } else if ((m = STORE.matcher(instruction)).matches()) {
+            String ptr = m.group(4);
+            if (allocas.contains(ptr)) {
+                slotValues.put(ptr, m.group(2));
+            }
+            output.add(line);
+            lastStorePtr = ptr;
+            lastStoreValue = m.group(2);
+            return;
+        } else if ((m = LOAD.matcher(instruction)).matches()) {
+            String ptr = m.group(4);
+            if (allocas.contains(ptr) && slotValues.containsKey(ptr)) {
+                replace(m.group(1), slotValues.get(ptr));
+                return;
+            }
+            if (ptr.equals(lastStorePtr)) {
+                replace(m.group(1), lastStoreValue);
+                return;
+            }
+            if (allocas.contains(ptr)) {
+                slotValues.put(ptr, m.group(1));
+            }
+        }
+        if (!instruction.isEmpty()) {
+            lastStorePtr = null;
+        }
+        output.add(line);
+    }
+
+    /**
+     * Folds the bitcast into the one its value comes from, if any, and records it.
+     * @return true if the bitcast is redundant and was dropped
+     */
+    private boolean visitBitcast(String register, String fromType, String value, String toType) {
+        if (bitcasts.containsKey(value)) {
+            String[] source = bitcasts.get(value);
+            fromType = source[0];
+            value = source[1];
+        }
+        if (fromType.equals(toType)) {
+            replace(register, value);
+            return true;
+        }
+        String key = fromType + ", " + value + ", " + toType;
+        String available = availableBitcasts.containsKey(key) ? availableBitcasts.get(key) : entryBlockBitcasts.get(key);
+        if (available != null) {
+            replace(register, available);
+            return true;
+        }
+        bitcasts.put(register, new String[]{fromType, value});
+        availableBitcasts.put(key, register);
+        if (inEntryBlock) {
+            entryBlockBitcasts.put(key, register);
+        }
+        return false;
+    }
+}
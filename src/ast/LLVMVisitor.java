@@ -3,30 +3,628 @@ import java.util.*;
 
 public class LLVMVisitor implements Visitor{
 
-    private static final String HELPER_METHODS = "declare i8* @calloc(i32, i32)\n" +
-            "declare i32 @printf(i8*, ...)\n" +
-            "declare void @exit(i32)\n" +
+    /**
+     * Size of the runtime's output buffer. print_int flushes it when less than 12 bytes - the longest
+     * printed int and its newline - are left.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 65536;
+    /**
+     * Size of the chunks the arena allocator takes from calloc. Larger allocations get a chunk of their own.
+     */
+    private static final int ARENA_CHUNK_SIZE = 1 << 22;
+
+    private static final String HELPER_METHODS = "declare i64 @write(i32, i8*, i64)\n" +
+            "declare i32 @atexit(void ()*)\n" +
+            "declare i32 @dprintf(i32, i8*, ...)\n" +
+            "declare void @exit(i32) noreturn\n" +
+            "declare i8* @calloc(i64, i64)\n" +
+            "declare void @free(i8*)\n" +
             "\n" +
-            "@_cint = constant [4 x i8] c\"%d\\0a\\00\"\n" +
             "@_cOOB = constant [15 x i8] c\"Out of bounds\\0a\\00\"\n" +
+            "@_out_buf = global [" + OUTPUT_BUFFER_SIZE + " x i8] zeroinitializer\n" +
+            "@_out_len = global i32 0\n" +
+            "@_cOOM = constant [15 x i8] c\"Out of memory\\0a\\00\"\n" +
+            "@_arena_next = global i8* null\n" +
+            "@_arena_end = global i8* null\n" +
+            "\n" +
+            "; writes the buffered output to stdout\n" +
+            "define void @flush_output() {\n" +
+            "entry:\n" +
+            "    %len = load i32, i32* @_out_len\n" +
+            "    br label %cond\n" +
+            "cond:\n" +
+            "    %written = phi i32 [0, %entry], [%next, %write]\n" +
+            "    %more = icmp slt i32 %written, %len\n" +
+            "    br i1 %more, label %write, label %done\n" +
+            "write:\n" +
+            "    %ptr = getelementptr inbounds [" + OUTPUT_BUFFER_SIZE + " x i8], [" + OUTPUT_BUFFER_SIZE + " x i8]* @_out_buf, i32 0, i32 %written\n" +
+            "    %left = sub i32 %len, %written\n" +
+            "    %left64 = zext i32 %left to i64\n" +
+            "    %res = call i64 @write(i32 1, i8* %ptr, i64 %left64)\n" +
+            "    %failed = icmp slt i64 %res, 1\n" +
+            "    %res32 = trunc i64 %res to i32\n" +
+            "    %next = add i32 %written, %res32\n" +
+            "    br i1 %failed, label %done, label %cond\n" +
+            "done:\n" +
+            "    store i32 0, i32* @_out_len\n" +
+            "    ret void\n" +
+            "}\n" +
+            "\n" +
+            "; appends the decimal digits of %i and a newline to the output buffer\n" +
             "define void @print_int(i32 %i) {\n" +
-            "    %_str = bitcast [4 x i8]* @_cint to i8*\n" +
-            "    call i32 (i8*, ...) @printf(i8* %_str, i32 %i)\n" +
+            "entry:\n" +
+            "    %len = load i32, i32* @_out_len\n" +
+            "    %full = icmp sgt i32 %len, " + (OUTPUT_BUFFER_SIZE - 12) + "\n" +
+            "    br i1 %full, label %flush, label %convert\n" +
+            "flush:\n" +
+            "    call void @flush_output()\n" +
+            "    br label %convert\n" +
+            "convert:\n" +
+            "    %start = phi i32 [%len, %entry], [0, %flush]\n" +
+            "    %neg = icmp slt i32 %i, 0\n" +
+            "    %minus = sub i32 0, %i\n" +
+            "    %abs = select i1 %neg, i32 %minus, i32 %i\n" +
+            "    %sign = zext i1 %neg to i32\n" +
+            "    ; the digits overwrite the sign of a non negative number\n" +
+            "    %sign_ptr = getelementptr inbounds [" + OUTPUT_BUFFER_SIZE + " x i8], [" + OUTPUT_BUFFER_SIZE + " x i8]* @_out_buf, i32 0, i32 %start\n" +
+            "    store i8 45, i8* %sign_ptr\n" +
+            "    br label %count\n" +
+            "count:\n" +
+            "    %digits = phi i32 [1, %convert], [%digits_next, %count]\n" +
+            "    %rest = phi i32 [%abs, %convert], [%rest_next, %count]\n" +
+            "    %digits_next = add i32 %digits, 1\n" +
+            "    %rest_next = udiv i32 %rest, 10\n" +
+            "    %more = icmp uge i32 %rest, 10\n" +
+            "    br i1 %more, label %count, label %fill\n" +
+            "fill:\n" +
+            "    %num_start = add i32 %start, %sign\n" +
+            "    %end = add i32 %num_start, %digits\n" +
+            "    %nl_ptr = getelementptr inbounds [" + OUTPUT_BUFFER_SIZE + " x i8], [" + OUTPUT_BUFFER_SIZE + " x i8]* @_out_buf, i32 0, i32 %end\n" +
+            "    store i8 10, i8* %nl_ptr\n" +
+            "    %new_len = add i32 %end, 1\n" +
+            "    store i32 %new_len, i32* @_out_len\n" +
+            "    br label %digit\n" +
+            "digit:\n" +
+            "    %pos = phi i32 [%end, %fill], [%pos_next, %digit]\n" +
+            "    %val = phi i32 [%abs, %fill], [%val_next, %digit]\n" +
+            "    %pos_next = sub i32 %pos, 1\n" +
+            "    %val_next = udiv i32 %val, 10\n" +
+            "    %tens = mul i32 %val_next, 10\n" +
+            "    %d = sub i32 %val, %tens\n" +
+            "    %d8 = trunc i32 %d to i8\n" +
+            "    %c = add i8 %d8, 48\n" +
+            "    %digit_ptr = getelementptr inbounds [" + OUTPUT_BUFFER_SIZE + " x i8], [" + OUTPUT_BUFFER_SIZE + " x i8]* @_out_buf, i32 0, i32 %pos_next\n" +
+            "    store i8 %c, i8* %digit_ptr\n" +
+            "    %last = icmp eq i32 %val_next, 0\n" +
+            "    br i1 %last, label %done, label %digit\n" +
+            "done:\n" +
             "    ret void\n" +
             "}\n" +
             "\n" +
-            "define void @throw_oob() {\n" +
+            "; the slow path of allocation, taken when the current chunk of the arena is exhausted: takes a new\n" +
+            "; zeroed chunk from calloc, which is never freed, and allocates %size bytes from it\n" +
+            "define i8* @arena_refill(i64 %size) {\n" +
+            "entry:\n" +
+            "    %big = icmp ugt i64 %size, " + ARENA_CHUNK_SIZE + "\n" +
+            "    %chunk_size = select i1 %big, i64 %size, i64 " + ARENA_CHUNK_SIZE + "\n" +
+            "    %chunk = call i8* @calloc(i64 1, i64 %chunk_size)\n" +
+            "    %failed = icmp eq i8* %chunk, null\n" +
+            "    br i1 %failed, label %oom, label %allocated\n" +
+            "allocated:\n" +
+            "    br i1 %big, label %done, label %refill\n" +
+            "refill:\n" +
+            "    %next = getelementptr inbounds i8, i8* %chunk, i64 %size\n" +
+            "    %end = getelementptr inbounds i8, i8* %chunk, i64 %chunk_size\n" +
+            "    store i8* %next, i8** @_arena_next\n" +
+            "    store i8* %end, i8** @_arena_end\n" +
+            "    br label %done\n" +
+            "done:\n" +
+            "    ret i8* %chunk\n" +
+            "oom:\n" +
+            "    call void @flush_output()\n" +
+            "    %_str = bitcast [15 x i8]* @_cOOM to i8*\n" +
+            "    call i64 @write(i32 2, i8* %_str, i64 14)\n" +
+            "    call void @exit(i32 1)\n" +
+            "    unreachable\n" +
+            "}\n" +
+            "\n" +
+            "define void @throw_oob() noreturn {\n" +
+            "    call void @flush_output()\n" +
             "    %_str = bitcast [15 x i8]* @_cOOB to i8*\n" +
-            "    call i32 (i8*, ...) @printf(i8* %_str)\n" +
+            "    call i64 @write(i32 1, i8* %_str, i64 14)\n" +
             "    call void @exit(i32 1)\n" +
+            "    unreachable\n" +
+            "}\n" +
+            "\n" +
+            "; weights of branches that almost always go one way - bounds checks and the arena fast path\n" +
+            "!0 = !{!\"branch_weights\", i32 2000, i32 1}\n";
+
+    /**
+     * Size of the heap at which the collector first runs. After each collection, the next one is once the
+     * heap has doubled, but not before it reaches this size again.
+     */
+    private static final long GC_INITIAL_THRESHOLD = 1 << 22;
+
+    /**
+     * The runtime of --gc: gc_alloc replaces the arena, and the generated code links a frame listing the
+     * addresses of its pointer variables to @_gc_top on entry to each function, and unlinks it on return
+     */
+    private static final String GC_RUNTIME = "; every object is preceded by a header: the next object in the list of all objects, the offsets of its\n" +
+            "; pointer fields (their count followed by the offsets, or null if it has none), its size and its mark.\n" +
+            "; The mark also links the marked objects whose fields are yet to be marked, the last one to itself\n" +
+            "%gc.header = type { %gc.header*, i32*, i64, %gc.header* }\n" +
+            "; a frame of the shadow stack: the frame below it, the number of roots and the addresses of the roots\n" +
+            "%gc.frame = type { i8*, i64, [0 x i8**] }\n" +
+            "\n" +
+            "@_gc_objects = global %gc.header* null\n" +
+            "@_gc_gray = global %gc.header* null\n" +
+            "@_gc_top = global i8* null\n" +
+            "@_gc_allocated = global i64 0\n" +
+            "@_gc_threshold = global i64 " + GC_INITIAL_THRESHOLD + "\n" +
+            "\n" +
+            "; allocates a zeroed object of %size bytes with the given pointer field offsets, collecting first\n" +
+            "; if the heap would grow past the threshold\n" +
+            "define i8* @gc_alloc(i64 %size, i32* %map) {\n" +
+            "entry:\n" +
+            "    %allocated = load i64, i64* @_gc_allocated\n" +
+            "    %grown = add i64 %allocated, %size\n" +
+            "    %threshold = load i64, i64* @_gc_threshold\n" +
+            "    %over = icmp ugt i64 %grown, %threshold\n" +
+            "    br i1 %over, label %collect, label %alloc\n" +
+            "collect:\n" +
+            "    call void @gc_collect()\n" +
+            "    br label %alloc\n" +
+            "alloc:\n" +
+            "    %total = add i64 %size, 32\n" +
+            "    %mem = call i8* @calloc(i64 1, i64 %total)\n" +
+            "    %failed = icmp eq i8* %mem, null\n" +
+            "    br i1 %failed, label %oom, label %link\n" +
+            "link:\n" +
+            "    %header = bitcast i8* %mem to %gc.header*\n" +
+            "    %objects = load %gc.header*, %gc.header** @_gc_objects\n" +
+            "    %next_ptr = getelementptr inbounds %gc.header, %gc.header* %header, i32 0, i32 0\n" +
+            "    store %gc.header* %objects, %gc.header** %next_ptr\n" +
+            "    %map_ptr = getelementptr inbounds %gc.header, %gc.header* %header, i32 0, i32 1\n" +
+            "    store i32* %map, i32** %map_ptr\n" +
+            "    %size_ptr = getelementptr inbounds %gc.header, %gc.header* %header, i32 0, i32 2\n" +
+            "    store i64 %size, i64* %size_ptr\n" +
+            "    store %gc.header* %header, %gc.header** @_gc_objects\n" +
+            "    %live = load i64, i64* @_gc_allocated\n" +
+            "    %new_allocated = add i64 %live, %size\n" +
+            "    store i64 %new_allocated, i64* @_gc_allocated\n" +
+            "    %obj = getelementptr inbounds i8, i8* %mem, i64 32\n" +
+            "    ret i8* %obj\n" +
+            "oom:\n" +
+            "    call void @flush_output()\n" +
+            "    %_str = bitcast [15 x i8]* @_cOOM to i8*\n" +
+            "    call i64 @write(i32 2, i8* %_str, i64 14)\n" +
+            "    call void @exit(i32 1)\n" +
+            "    unreachable\n" +
+            "}\n" +
+            "\n" +
+            "; marks the object, unless it's null or already marked, and pushes it on the stack of objects to scan\n" +
+            "define void @gc_shade(i8* %obj) {\n" +
+            "entry:\n" +
+            "    %is_null = icmp eq i8* %obj, null\n" +
+            "    br i1 %is_null, label %done, label %check\n" +
+            "check:\n" +
+            "    %mem = getelementptr inbounds i8, i8* %obj, i64 -32\n" +
+            "    %header = bitcast i8* %mem to %gc.header*\n" +
+            "    %mark_ptr = getelementptr inbounds %gc.header, %gc.header* %header, i32 0, i32 3\n" +
+            "    %mark = load %gc.header*, %gc.header** %mark_ptr\n" +
+            "    %marked = icmp ne %gc.header* %mark, null\n" +
+            "    br i1 %marked, label %done, label %push\n" +
+            "push:\n" +
+            "    %gray = load %gc.header*, %gc.header** @_gc_gray\n" +
+            "    %empty = icmp eq %gc.header* %gray, null\n" +
+            "    %link = select i1 %empty, %gc.header* %header, %gc.header* %gray\n" +
+            "    store %gc.header* %link, %gc.header** %mark_ptr\n" +
+            "    store %gc.header* %header, %gc.header** @_gc_gray\n" +
+            "    br label %done\n" +
+            "done:\n" +
+            "    ret void\n" +
+            "}\n" +
+            "\n" +
+            "; marks the objects reachable from the roots of the frames on the shadow stack and frees the rest\n" +
+            "define void @gc_collect() {\n" +
+            "entry:\n" +
+            "    %top = load i8*, i8** @_gc_top\n" +
+            "    br label %frame_cond\n" +
+            "frame_cond:\n" +
+            "    %frame = phi i8* [%top, %entry], [%prev, %frame_next]\n" +
+            "    %no_frame = icmp eq i8* %frame, null\n" +
+            "    br i1 %no_frame, label %scan_cond, label %frame_body\n" +
+            "frame_body:\n" +
+            "    %f = bitcast i8* %frame to %gc.frame*\n" +
+            "    %count_ptr = getelementptr inbounds %gc.frame, %gc.frame* %f, i32 0, i32 1\n" +
+            "    %count = load i64, i64* %count_ptr\n" +
+            "    br label %root_cond\n" +
+            "root_cond:\n" +
+            "    %k = phi i64 [0, %frame_body], [%k_next, %root_body]\n" +
+            "    %more_roots = icmp ult i64 %k, %count\n" +
+            "    br i1 %more_roots, label %root_body, label %frame_next\n" +
+            "root_body:\n" +
+            "    %cell_ptr = getelementptr inbounds %gc.frame, %gc.frame* %f, i32 0, i32 2, i64 %k\n" +
+            "    %cell = load i8**, i8*** %cell_ptr\n" +
+            "    %root = load i8*, i8** %cell\n" +
+            "    call void @gc_shade(i8* %root)\n" +
+            "    %k_next = add i64 %k, 1\n" +
+            "    br label %root_cond\n" +
+            "frame_next:\n" +
+            "    %prev_ptr = getelementptr inbounds %gc.frame, %gc.frame* %f, i32 0, i32 0\n" +
+            "    %prev = load i8*, i8** %prev_ptr\n" +
+            "    br label %frame_cond\n" +
+            "scan_cond:\n" +
+            "    %gray = load %gc.header*, %gc.header** @_gc_gray\n" +
+            "    %scanned = icmp eq %gc.header* %gray, null\n" +
+            "    br i1 %scanned, label %sweep, label %pop\n" +
+            "pop:\n" +
+            "    %gray_mark_ptr = getelementptr inbounds %gc.header, %gc.header* %gray, i32 0, i32 3\n" +
+            "    %below = load %gc.header*, %gc.header** %gray_mark_ptr\n" +
+            "    %bottom = icmp eq %gc.header* %below, %gray\n" +
+            "    %new_gray = select i1 %bottom, %gc.header* null, %gc.header* %below\n" +
+            "    store %gc.header* %new_gray, %gc.header** @_gc_gray\n" +
+            "    %map_ptr = getelementptr inbounds %gc.header, %gc.header* %gray, i32 0, i32 1\n" +
+            "    %map = load i32*, i32** %map_ptr\n" +
+            "    %no_map = icmp eq i32* %map, null\n" +
+            "    br i1 %no_map, label %scan_cond, label %scan\n" +
+            "scan:\n" +
+            "    %fields = load i32, i32* %map\n" +
+            "    %gray_mem = bitcast %gc.header* %gray to i8*\n" +
+            "    %obj = getelementptr inbounds i8, i8* %gray_mem, i64 32\n" +
+            "    br label %field_cond\n" +
+            "field_cond:\n" +
+            "    %j = phi i32 [0, %scan], [%j_next, %field_body]\n" +
+            "    %more_fields = icmp slt i32 %j, %fields\n" +
+            "    br i1 %more_fields, label %field_body, label %scan_cond\n" +
+            "field_body:\n" +
+            "    %j_next = add i32 %j, 1\n" +
+            "    %offset_ptr = getelementptr inbounds i32, i32* %map, i32 %j_next\n" +
+            "    %offset = load i32, i32* %offset_ptr\n" +
+            "    %field_mem = getelementptr inbounds i8, i8* %obj, i32 %offset\n" +
+            "    %field_ptr = bitcast i8* %field_mem to i8**\n" +
+            "    %field = load i8*, i8** %field_ptr\n" +
+            "    call void @gc_shade(i8* %field)\n" +
+            "    br label %field_cond\n" +
+            "sweep:\n" +
+            "    br label %sweep_cond\n" +
+            "sweep_cond:\n" +
+            "    %link = phi %gc.header** [@_gc_objects, %sweep], [%link, %free], [%next_ptr, %keep]\n" +
+            "    %live = phi i64 [0, %sweep], [%live, %free], [%live_next, %keep]\n" +
+            "    %h = load %gc.header*, %gc.header** %link\n" +
+            "    %swept = icmp eq %gc.header* %h, null\n" +
+            "    br i1 %swept, label %done, label %sweep_body\n" +
+            "sweep_body:\n" +
+            "    %next_ptr = getelementptr inbounds %gc.header, %gc.header* %h, i32 0, i32 0\n" +
+            "    %h_mark_ptr = getelementptr inbounds %gc.header, %gc.header* %h, i32 0, i32 3\n" +
+            "    %h_mark = load %gc.header*, %gc.header** %h_mark_ptr\n" +
+            "    %dead = icmp eq %gc.header* %h_mark, null\n" +
+            "    br i1 %dead, label %free, label %keep\n" +
+            "free:\n" +
+            "    %next = load %gc.header*, %gc.header** %next_ptr\n" +
+            "    store %gc.header* %next, %gc.header** %link\n" +
+            "    %h_mem = bitcast %gc.header* %h to i8*\n" +
+            "    call void @free(i8* %h_mem)\n" +
+            "    br label %sweep_cond\n" +
+            "keep:\n" +
+            "    store %gc.header* null, %gc.header** %h_mark_ptr\n" +
+            "    %h_size_ptr = getelementptr inbounds %gc.header, %gc.header* %h, i32 0, i32 2\n" +
+            "    %h_size = load i64, i64* %h_size_ptr\n" +
+            "    %live_next = add i64 %live, %h_size\n" +
+            "    br label %sweep_cond\n" +
+            "done:\n" +
+            "    ; the next collection is once the heap doubles\n" +
+            "    store i64 %live, i64* @_gc_allocated\n" +
+            "    %doubled = shl i64 %live, 1\n" +
+            "    %small = icmp ult i64 %doubled, " + GC_INITIAL_THRESHOLD + "\n" +
+            "    %threshold = select i1 %small, i64 " + GC_INITIAL_THRESHOLD + ", i64 %doubled\n" +
+            "    store i64 %threshold, i64* @_gc_threshold\n" +
             "    ret void\n" +
             "}\n";
 
+    /**
+     * The runtime of --alloc-stats. The counters of each class and the report, which main registers to run at
+     * exit, are generated with the program.
+     */
+    private static final String ALLOC_STATS_RUNTIME = "declare i32 @llvm.ctlz.i32(i32, i1)\n" +
+            "\n" +
+            "; allocations and bytes of int arrays, by the number of bits in their length\n" +
+            "@_array_allocs = global [32 x i64] zeroinitializer\n" +
+            "@_array_alloc_bytes = global [32 x i64] zeroinitializer\n" +
+            "@_cAllocStats = constant [24 x i8] c\"allocation statistics:\\0a\\00\"\n" +
+            "@_cClassAllocs = constant [30 x i8] c\"  %s: %ld objects, %ld bytes\\0a\\00\"\n" +
+            "@_cArrayAllocs = constant [40 x i8] c\"  int[%ld..%ld]: %ld arrays, %ld bytes\\0a\\00\"\n" +
+            "\n" +
+            "; prints the statistics of the ranges of lengths int arrays were allocated in\n" +
+            "define void @print_array_alloc_stats() {\n" +
+            "entry:\n" +
+            "    %fmt = getelementptr inbounds [40 x i8], [40 x i8]* @_cArrayAllocs, i32 0, i32 0\n" +
+            "    br label %cond\n" +
+            "cond:\n" +
+            "    %bits = phi i64 [0, %entry], [%bits_next, %next]\n" +
+            "    %more = icmp ult i64 %bits, 32\n" +
+            "    br i1 %more, label %body, label %done\n" +
+            "body:\n" +
+            "    %count_ptr = getelementptr inbounds [32 x i64], [32 x i64]* @_array_allocs, i64 0, i64 %bits\n" +
+            "    %count = load i64, i64* %count_ptr\n" +
+            "    %none = icmp eq i64 %count, 0\n" +
+            "    br i1 %none, label %next, label %print\n" +
+            "print:\n" +
+            "    %bytes_ptr = getelementptr inbounds [32 x i64], [32 x i64]* @_array_alloc_bytes, i64 0, i64 %bits\n" +
+            "    %bytes = load i64, i64* %bytes_ptr\n" +
+            "    %limit = shl i64 1, %bits\n" +
+            "    %min = lshr i64 %limit, 1\n" +
+            "    %max = sub i64 %limit, 1\n" +
+            "    call i32 (i32, i8*, ...) @dprintf(i32 2, i8* %fmt, i64 %min, i64 %max, i64 %count, i64 %bytes)\n" +
+            "    br label %next\n" +
+            "next:\n" +
+            "    %bits_next = add i64 %bits, 1\n" +
+            "    br label %cond\n" +
+            "done:\n" +
+            "    ret void\n" +
+            "}\n";
+
+    /**
+     * The runtime of --profile. Each method reads the cycle counter on entry and on return, and adds to its
+     * counters in @_profile, whose report main registers to run at exit.
+     */
+    private static final String PROFILE_RUNTIME = "declare i64 @llvm.readcyclecounter()\n" +
+            "\n" +
+            "; cycles taken by the methods the running method called so far\n" +
+            "@_prof_children = global i64 0\n" +
+            "@_cProfile = constant [76 x i8] c\"profile, in cycles:\\0a       calls        inclusive             self  method\\0a\\00\"\n" +
+            "@_cProfileEntry = constant [23 x i8] c\"%12ld %16ld %16ld  %s\\0a\\00\"\n" +
+            "\n" +
+            "; prints the methods that were called, the ones whose own code took the most cycles first. The counters of\n" +
+            "; each method are its calls, and its cycles with and without the methods it called\n" +
+            "define void @print_profile(i8** %names, [3 x i64]* %counters, i64 %n) {\n" +
+            "entry:\n" +
+            "    %header = getelementptr inbounds [76 x i8], [76 x i8]* @_cProfile, i32 0, i32 0\n" +
+            "    call i32 (i32, i8*, ...) @dprintf(i32 2, i8* %header)\n" +
+            "    %fmt = getelementptr inbounds [23 x i8], [23 x i8]* @_cProfileEntry, i32 0, i32 0\n" +
+            "    br label %round\n" +
+            "round:\n" +
+            "    br label %find_cond\n" +
+            "find_cond:\n" +
+            "    %i = phi i64 [0, %round], [%i_next, %find_body]\n" +
+            "    %best = phi i64 [-1, %round], [%best_next, %find_body]\n" +
+            "    %best_self = phi i64 [-1, %round], [%best_self_next, %find_body]\n" +
+            "    %more = icmp ult i64 %i, %n\n" +
+            "    br i1 %more, label %find_body, label %found\n" +
+            "find_body:\n" +
+            "    %calls_ptr = getelementptr inbounds [3 x i64], [3 x i64]* %counters, i64 %i, i64 0\n" +
+            "    %calls = load i64, i64* %calls_ptr\n" +
+            "    %self_ptr = getelementptr inbounds [3 x i64], [3 x i64]* %counters, i64 %i, i64 2\n" +
+            "    %self = load i64, i64* %self_ptr\n" +
+            "    %called = icmp ne i64 %calls, 0\n" +
+            "    %better = icmp sgt i64 %self, %best_self\n" +
+            "    %take = and i1 %called, %better\n" +
+            "    %best_next = select i1 %take, i64 %i, i64 %best\n" +
+            "    %best_self_next = select i1 %take, i64 %self, i64 %best_self\n" +
+            "    %i_next = add i64 %i, 1\n" +
+            "    br label %find_cond\n" +
+            "found:\n" +
+            "    %none = icmp eq i64 %best, -1\n" +
+            "    br i1 %none, label %done, label %print\n" +
+            "print:\n" +
+            "    %name_ptr = getelementptr inbounds i8*, i8** %names, i64 %best\n" +
+            "    %name = load i8*, i8** %name_ptr\n" +
+            "    %best_calls_ptr = getelementptr inbounds [3 x i64], [3 x i64]* %counters, i64 %best, i64 0\n" +
+            "    %best_calls = load i64, i64* %best_calls_ptr\n" +
+            "    %inclusive_ptr = getelementptr inbounds [3 x i64], [3 x i64]* %counters, i64 %best, i64 1\n" +
+            "    %inclusive = load i64, i64* %inclusive_ptr\n" +
+            "    call i32 (i32, i8*, ...) @dprintf(i32 2, i8* %fmt, i64 %best_calls, i64 %inclusive, i64 %best_self, i8* %name)\n" +
+            "    ; printed methods are skipped from now on\n" +
+            "    store i64 0, i64* %best_calls_ptr\n" +
+            "    br label %round\n" +
+            "done:\n" +
+            "    ret void\n" +
+            "}\n";
+
+    /**
+     * The runtime of --memoize: an open addressing hash table per memoized method, from its arguments to its
+     * result. The tables live outside the heap and are never freed.
+     */
+    private static final String MEMO_RUNTIME = "; a memo table: its entries, their number (a power of two, or 0 before the first call is stored) and how many\n" +
+            "; are used. An entry of a method with n parameters is n + 2 ints: whether it's used, the arguments and the result\n" +
+            "%memo.table = type { i32*, i32, i32 }\n" +
+            "\n" +
+            "; finds the entry of the n arguments: the one holding them, or else the unused one they're to be stored in\n" +
+            "define i32* @memo_find(%memo.table* %table, i32* %args, i32 %n) {\n" +
+            "entry:\n" +
+            "    %entries_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 0\n" +
+            "    %entries = load i32*, i32** %entries_ptr\n" +
+            "    %capacity_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 1\n" +
+            "    %capacity = load i32, i32* %capacity_ptr\n" +
+            "    %stride = add i32 %n, 2\n" +
+            "    br label %hash_cond\n" +
+            "hash_cond:\n" +
+            "    %i = phi i32 [0, %entry], [%i_next, %hash_body]\n" +
+            "    %hash = phi i32 [-2128831035, %entry], [%hash_next, %hash_body]\n" +
+            "    %more = icmp slt i32 %i, %n\n" +
+            "    br i1 %more, label %hash_body, label %probe_start\n" +
+            "hash_body:\n" +
+            "    %arg_ptr = getelementptr inbounds i32, i32* %args, i32 %i\n" +
+            "    %arg = load i32, i32* %arg_ptr\n" +
+            "    %mixed = xor i32 %hash, %arg\n" +
+            "    %hash_next = mul i32 %mixed, 16777619\n" +
+            "    %i_next = add i32 %i, 1\n" +
+            "    br label %hash_cond\n" +
+            "probe_start:\n" +
+            "    %mask = sub i32 %capacity, 1\n" +
+            "    %start = and i32 %hash, %mask\n" +
+            "    br label %probe\n" +
+            "probe:\n" +
+            "    %slot = phi i32 [%start, %probe_start], [%slot_next, %next_slot]\n" +
+            "    %offset = mul i32 %slot, %stride\n" +
+            "    %entry_ptr = getelementptr inbounds i32, i32* %entries, i32 %offset\n" +
+            "    %used = load i32, i32* %entry_ptr\n" +
+            "    %unused = icmp eq i32 %used, 0\n" +
+            "    br i1 %unused, label %found, label %compare\n" +
+            "compare:\n" +
+            "    br label %compare_cond\n" +
+            "compare_cond:\n" +
+            "    %j = phi i32 [0, %compare], [%j_next, %compare_body]\n" +
+            "    %compare_more = icmp slt i32 %j, %n\n" +
+            "    br i1 %compare_more, label %compare_body, label %found\n" +
+            "compare_body:\n" +
+            "    %key_index = add i32 %j, 1\n" +
+            "    %key_ptr = getelementptr inbounds i32, i32* %entry_ptr, i32 %key_index\n" +
+            "    %key = load i32, i32* %key_ptr\n" +
+            "    %other_ptr = getelementptr inbounds i32, i32* %args, i32 %j\n" +
+            "    %other = load i32, i32* %other_ptr\n" +
+            "    %same = icmp eq i32 %key, %other\n" +
+            "    %j_next = add i32 %j, 1\n" +
+            "    br i1 %same, label %compare_cond, label %next_slot\n" +
+            "next_slot:\n" +
+            "    %slot_incremented = add i32 %slot, 1\n" +
+            "    %slot_next = and i32 %slot_incremented, %mask\n" +
+            "    br label %probe\n" +
+            "found:\n" +
+            "    ret i32* %entry_ptr\n" +
+            "}\n" +
+            "\n" +
+            "; looks up the result stored for the n arguments into %result\n" +
+            "define i1 @memo_lookup(%memo.table* %table, i32* %args, i32 %n, i32* %result) {\n" +
+            "entry:\n" +
+            "    %capacity_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 1\n" +
+            "    %capacity = load i32, i32* %capacity_ptr\n" +
+            "    %empty = icmp eq i32 %capacity, 0\n" +
+            "    br i1 %empty, label %miss, label %find\n" +
+            "find:\n" +
+            "    %entry_ptr = call i32* @memo_find(%memo.table* %table, i32* %args, i32 %n)\n" +
+            "    %used = load i32, i32* %entry_ptr\n" +
+            "    %hit = icmp ne i32 %used, 0\n" +
+            "    br i1 %hit, label %load, label %miss\n" +
+            "load:\n" +
+            "    %result_index = add i32 %n, 1\n" +
+            "    %result_ptr = getelementptr inbounds i32, i32* %entry_ptr, i32 %result_index\n" +
+            "    %value = load i32, i32* %result_ptr\n" +
+            "    store i32 %value, i32* %result\n" +
+            "    ret i1 1\n" +
+            "miss:\n" +
+            "    ret i1 0\n" +
+            "}\n" +
+            "\n" +
+            "; doubles the number of entries, starting with 64, and moves the used ones to where they now belong\n" +
+            "define void @memo_grow(%memo.table* %table, i32 %n) {\n" +
+            "entry:\n" +
+            "    %entries_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 0\n" +
+            "    %old_entries = load i32*, i32** %entries_ptr\n" +
+            "    %capacity_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 1\n" +
+            "    %old_capacity = load i32, i32* %capacity_ptr\n" +
+            "    %first = icmp eq i32 %old_capacity, 0\n" +
+            "    %doubled = shl i32 %old_capacity, 1\n" +
+            "    %capacity = select i1 %first, i32 64, i32 %doubled\n" +
+            "    %stride = add i32 %n, 2\n" +
+            "    %capacity64 = zext i32 %capacity to i64\n" +
+            "    %stride64 = zext i32 %stride to i64\n" +
+            "    %count = mul i64 %capacity64, %stride64\n" +
+            "    %mem = call i8* @calloc(i64 %count, i64 4)\n" +
+            "    %failed = icmp eq i8* %mem, null\n" +
+            "    br i1 %failed, label %oom, label %move\n" +
+            "oom:\n" +
+            "    call void @flush_output()\n" +
+            "    %msg = getelementptr inbounds [15 x i8], [15 x i8]* @_cOOM, i32 0, i32 0\n" +
+            "    call i64 @write(i32 2, i8* %msg, i64 14)\n" +
+            "    call void @exit(i32 1)\n" +
+            "    unreachable\n" +
+            "move:\n" +
+            "    %entries = bitcast i8* %mem to i32*\n" +
+            "    store i32* %entries, i32** %entries_ptr\n" +
+            "    store i32 %capacity, i32* %capacity_ptr\n" +
+            "    br label %move_cond\n" +
+            "move_cond:\n" +
+            "    %slot = phi i32 [0, %move], [%slot_next, %move_next]\n" +
+            "    %more = icmp ult i32 %slot, %old_capacity\n" +
+            "    br i1 %more, label %move_body, label %done\n" +
+            "move_body:\n" +
+            "    %offset = mul i32 %slot, %stride\n" +
+            "    %old_entry = getelementptr inbounds i32, i32* %old_entries, i32 %offset\n" +
+            "    %used = load i32, i32* %old_entry\n" +
+            "    %unused = icmp eq i32 %used, 0\n" +
+            "    br i1 %unused, label %move_next, label %copy\n" +
+            "copy:\n" +
+            "    %old_args = getelementptr inbounds i32, i32* %old_entry, i32 1\n" +
+            "    %new_entry = call i32* @memo_find(%memo.table* %table, i32* %old_args, i32 %n)\n" +
+            "    br label %copy_cond\n" +
+            "copy_cond:\n" +
+            "    %i = phi i32 [0, %copy], [%i_next, %copy_body]\n" +
+            "    %copy_more = icmp ult i32 %i, %stride\n" +
+            "    br i1 %copy_more, label %copy_body, label %move_next\n" +
+            "copy_body:\n" +
+            "    %from = getelementptr inbounds i32, i32* %old_entry, i32 %i\n" +
+            "    %to = getelementptr inbounds i32, i32* %new_entry, i32 %i\n" +
+            "    %word = load i32, i32* %from\n" +
+            "    store i32 %word, i32* %to\n" +
+            "    %i_next = add i32 %i, 1\n" +
+            "    br label %copy_cond\n" +
+            "move_next:\n" +
+            "    %slot_next = add i32 %slot, 1\n" +
+            "    br label %move_cond\n" +
+            "done:\n" +
+            "    %old_mem = bitcast i32* %old_entries to i8*\n" +
+            "    call void @free(i8* %old_mem)\n" +
+            "    ret void\n" +
+            "}\n" +
+            "\n" +
+            "; stores the result of the n arguments, growing the table first if it would become more than half full\n" +
+            "define void @memo_store(%memo.table* %table, i32* %args, i32 %n, i32 %result) {\n" +
+            "entry:\n" +
+            "    %capacity_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 1\n" +
+            "    %capacity = load i32, i32* %capacity_ptr\n" +
+            "    %used_ptr = getelementptr inbounds %memo.table, %memo.table* %table, i32 0, i32 2\n" +
+            "    %used = load i32, i32* %used_ptr\n" +
+            "    %used_next = add i32 %used, 1\n" +
+            "    %needed = shl i32 %used_next, 1\n" +
+            "    %full = icmp ugt i32 %needed, %capacity\n" +
+            "    br i1 %full, label %grow, label %insert\n" +
+            "grow:\n" +
+            "    call void @memo_grow(%memo.table* %table, i32 %n)\n" +
+            "    br label %insert\n" +
+            "insert:\n" +
+            "    %entry_ptr = call i32* @memo_find(%memo.table* %table, i32* %args, i32 %n)\n" +
+            "    %was_used = load i32, i32* %entry_ptr\n" +
+            "    store i32 1, i32* %entry_ptr\n" +
+            "    %count = sub i32 %used_next, %was_used\n" +
+            "    store i32 %count, i32* %used_ptr\n" +
+            "    br label %copy_cond\n" +
+            "copy_cond:\n" +
+            "    %i = phi i32 [0, %insert], [%i_next, %copy_body]\n" +
+            "    %more = icmp slt i32 %i, %n\n" +
+            "    br i1 %more, label %copy_body, label %done\n" +
+            "copy_body:\n" +
+            "    %arg_ptr = getelementptr inbounds i32, i32* %args, i32 %i\n" +
+            "    %arg = load i32, i32* %arg_ptr\n" +
+            "    %key_index = add i32 %i, 1\n" +
+            "    %key_ptr = getelementptr inbounds i32, i32* %entry_ptr, i32 %key_index\n" +
+            "    store i32 %arg, i32* %key_ptr\n" +
+            "    %i_next = add i32 %i, 1\n" +
+            "    br label %copy_cond\n" +
+            "done:\n" +
+            "    %result_index = add i32 %n, 1\n" +
+            "    %result_ptr = getelementptr inbounds i32, i32* %entry_ptr, i32 %result_index\n" +
+            "    store i32 %result, i32* %result_ptr\n" +
+            "    ret void\n" +
+            "}\n";
+
+    /**
+     * An int array: its length followed by its elements
+     */
+    private static final String ARRAY_TYPE = "%IntArray";
+
+    /**
+     * Start of main: the output print_int buffers is flushed when the program exits
+     */
+    private static final String MAIN_HEADER = "define i32 @main() {\n" +
+            "\tcall i32 @atexit(void ()* @flush_output)\n";
+
     private final StringBuilder LLVMProgram;
     private final InheritanceForest forest;
     private final SymbolTable programSymbolTable;
     private final Map<String, List<STSymbol>> vtables;
     private final Map<String, List<STSymbol>> instanceTemplates;
+    private final Map<String, ClassLayout> layouts;
     /**
      * Latest index of register / label that is ready to use next.
      * Note the difference - it's not the index of the one most recently used.
@@ -35,29 +633,183 @@ public class LLVMVisitor implements Visitor{
     private int methodCurrLabelIndex;
     //to be used for calloc because it will not be that last register assigned
     private int lastCallocReg;
+    /**
+     * Whether a bounds check of the function being emitted branches to its oob_trap block, which calls
+     * throw_oob, so that the block needs to be emitted at the end of the function
+     */
+    private boolean usesOobTrap;
+    /**
+     * Label of the basic block being emitted, set by appendLabel. null in a function's entry block, which
+     * has no label
+     */
+    private String currentBlockLabel;
+    /**
+     * Loop invariant int[] variables of the while loops enclosing the code being emitted, whose pointer
+     * (and possibly length) were loaded once before entering the outermost loop they're invariant in.
+     */
+    private final Map<String, HoistedArray> hoistedArrays;
+    /**
+     * With --gc: where the function's shadow stack frame is to be set up once its body is emitted, and how
+     * many temporary roots the code being emitted uses and the function needs
+     */
+    private int gcFramePos;
+    private int gcTempDepth;
+    private int gcTempCount;
+    /**
+     * With --profile: index in @_profile of each method the program may call
+     */
+    private final Map<MethodDecl, Integer> profileIndex;
+    private final CompileOptions options;
+    /**
+     * The statements emitted right before the one being emitted in the same statement list.
+     * Lets a loop find the assignment initializing its counter.
+     */
+    private List<Statement> precedingStatements;
+    /**
+     * What is left of the unroll budget for the loop being emitted. The loops nested in a loop emitted as n
+     * copies of its body share its budget, so each copy's loops get 1/n of it.
+     */
+    private int unrollBudget;
+
+    /**
+     * Most copies of a loop body that a partially unrolled loop iteration runs
+     */
+    private static final int MAX_UNROLL_FACTOR = 4;
+    private final ClassHierarchyAnalysis cha;
+    private final RapidTypeAnalysis rta;
+    private final PurityAnalysis purity;
+    private final BindingVisitor binder;
+    /**
+     * The function pointer type of each method called through its vtable
+     */
+    private final Map<MethodDecl, String> signatures;
+    /**
+     * A call site with at most this many possible targets compares the owner's vtable against the vtables of the
+     * classes using each target, calling the matching target directly
+     */
+    private static final int MAX_GUARDED_TARGETS = 3;
+    /**
+     * Most vtable compares a guarded call site makes, the classes of targets that don't fit are left to the
+     * indirect call
+     */
+    private static final int MAX_GUARDED_CLASSES = 4;
 
-    public LLVMVisitor(Program program){
+    /**
+     * Registers holding a hoisted array's pointer, the pointer to its first element,
+     * and its length, or -1 if the length was not hoisted.
+     * Immutable: an inner loop hoisting the length puts a new one in hoistedArrays, so that the enclosing loop's
+     * one, restored once the inner loop is emitted, doesn't refer to a register defined only inside it.
+     */
+    private static class HoistedArray {
+        final int ptrReg;
+        final int dataReg;
+        final int lengthReg;
+
+        HoistedArray(int ptrReg, int dataReg, int lengthReg) {
+            this.ptrReg = ptrReg;
+            this.dataReg = dataReg;
+            this.lengthReg = lengthReg;
+        }
+    }
+
+    public LLVMVisitor(ProgramAnalysis analysis){
+        this(analysis, new CompileOptions());
+    }
+
+    public LLVMVisitor(ProgramAnalysis analysis, CompileOptions options){
+        this.options = options;
         LLVMProgram = new StringBuilder();
-        forest = new InheritanceForest(program);
-        programSymbolTable = new SymbolTable(program);
-        List<Map<String, List<STSymbol>>> maps = STLookup.createProgramMaps(programSymbolTable, forest);
-        vtables = maps.get(0);
-        instanceTemplates = maps.get(1);
+        Program program = analysis.program();
+        forest = analysis.forest();
+        programSymbolTable = analysis.programSymbolTable();
+        vtables = analysis.vtables();
+        instanceTemplates = analysis.instanceTemplates();
+        layouts = analysis.layouts();
+        binder = analysis.binder();
+        cha = new ClassHierarchyAnalysis(forest, vtables);
+        rta = new RapidTypeAnalysis(program, forest, vtables);
+        purity = new PurityAnalysis(program, vtables, cha, rta);
+        hoistedArrays = new HashMap<>();
+        profileIndex = new HashMap<>();
+        signatures = new HashMap<>();
+        precedingStatements = Collections.emptyList();
+        unrollBudget = options.unrollBudget();
     }
 
     public String getLLVMProgram() {
-        return LLVMProgram.toString();
+        String program = LLVMProgram.toString();
+        if (options.peephole()) {
+            program = LLVMPeephole.optimize(program);
+        }
+        return LLVMFunctionMerger.merge(program);
     }
 
     @Override
     public void visit(Program program) {
         LLVMProgram.append(HELPER_METHODS + "\n");
+        if (options.evaluate()) {
+            ProgramEvaluator evaluator = new ProgramEvaluator(forest, options.evaluateFuel());
+            if (evaluator.run(program)) {
+                emitEvaluatedMain(evaluator);
+                return;
+            }
+        }
+        if (options.gc()) {
+            LLVMProgram.append(GC_RUNTIME + "\n");
+        }
+        if (options.allocStats()) {
+            LLVMProgram.append(ALLOC_STATS_RUNTIME + "\n\n");
+            LLVMProgram.append(generateAllocStats());
+        }
+        if (options.profile()) {
+            LLVMProgram.append(PROFILE_RUNTIME + "\n\n");
+            LLVMProgram.append(generateProfileTable());
+        }
+        if (options.memoize()) {
+            LLVMProgram.append(MEMO_RUNTIME + "\n");
+        }
+        LLVMProgram.append(ARRAY_TYPE + " = type { i32, [0 x i32] }\n");
+        for(ClassDecl classDecl : forest.getRoots()){
+            appendStructTypes(classDecl);
+        }
+        LLVMProgram.append("\n");
         program.mainClass().accept(this);
         for(ClassDecl classDecl : forest.getRoots()){
             recursiveVisitTree(classDecl);
         }
     }
 
+    /**
+     * Emits a main printing the output of the evaluated program from a constant array, then exiting like the
+     * program did. None of the program's methods are needed.
+     */
+    private void emitEvaluatedMain(ProgramEvaluator evaluator) {
+        List<Integer> output = evaluator.output();
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < output.size(); i++) {
+            values.append(i == 0 ? "" : ", ").append("i32 ").append(output.get(i));
+        }
+        LLVMProgram.append(String.format("@_output = constant [%d x i32] %s\n\n",
+                output.size(), output.isEmpty() ? "zeroinitializer" : "[" + values + "]"));
+        LLVMProgram.append(MAIN_HEADER);
+        currentBlockLabel = null;
+        LLVMProgram.append("\t%i = alloca i32\n\tstore i32 0, i32* %i\n\tbr label %print_cond\n");
+        appendLabel("print_cond");
+        LLVMProgram.append("\t%_0 = load i32, i32* %i\n");
+        LLVMProgram.append(String.format("\t%%_1 = icmp slt i32 %%_0, %d\n", output.size()));
+        LLVMProgram.append("\tbr i1 %_1, label %print_loop, label %print_end\n");
+        appendLabel("print_loop");
+        LLVMProgram.append(String.format(
+                "\t%%_2 = getelementptr [%d x i32], [%d x i32]* @_output, i32 0, i32 %%_0\n", output.size(), output.size()));
+        LLVMProgram.append("\t%_3 = load i32, i32* %_2\n\tcall void (i32) @print_int(i32 %_3)\n");
+        LLVMProgram.append("\t%_4 = add i32 %_0, 1\n\tstore i32 %_4, i32* %i\n\tbr label %print_cond\n");
+        appendLabel("print_end");
+        if (evaluator.outOfBounds()) {
+            LLVMProgram.append("\tcall void @throw_oob()\n");
+        }
+        LLVMProgram.append("\tret i32 0\n}\n");
+    }
+
     private void recursiveVisitTree(ClassDecl classDecl){
         classDecl.accept(this);
         if(forest.getChildren(classDecl) == null) return;
@@ -83,6 +835,8 @@ public class LLVMVisitor implements Visitor{
     }
 
     private String methodDeclToVTElem(MethodDecl methodDecl, String className){
+        //methods no call can reach aren't emitted
+        if (!rta.isReachable(methodDecl)) return "i8* null";
         String res = String.format("i8* bitcast (%s (i8*", getLLVMType(methodDecl.returnType()));
         List<FormalArg> formals = methodDecl.formals();
         for(int i = 0; i < methodDecl.formals().size(); i++){
@@ -96,94 +850,435 @@ public class LLVMVisitor implements Visitor{
     }
 
     private String getLLVMType(AstType type){
-        String typeName = type.getClass().getName();
-        if(typeName.equals("ast.IntAstType")) return "i32";
-        if(typeName.equals("ast.IntArrayAstType")) return "i32*";
-        if(typeName.equals("ast.BoolAstType")) return "i1";
-        if(typeName.equals("ast.RefType")) return "i8*";
-        else{
-            System.out.println("problem in getLlvmType");
-            return null;
+        switch (type.kind()) {
+            case INT_TYPE:
+                return "i32";
+            case INT_ARRAY_TYPE:
+                return ARRAY_TYPE + "*";
+            case BOOL_TYPE:
+                return "i1";
+            case REF_TYPE:
+                return "i8*";
+            default:
+                System.out.println("problem in getLlvmType");
+                return null;
+        }
+    }
+
+    /**
+     * Name of the struct type of instances of the class
+     */
+    private static String getStructType(String className) {
+        return "%class." + className;
+    }
+
+    /**
+     * The struct type of a class's instances: the VT ptr followed by the fields in instanceTemplates order.
+     * Inherited fields come first, so a subclass's struct starts with its superclass's, and an instance
+     * can be accessed through the struct type of any of its classes.
+     */
+    private String generateStructType(ClassDecl classDecl) {
+        StringBuilder res = new StringBuilder(getStructType(classDecl.name()) + " = type { i8**");
+        for (STSymbol field : instanceTemplates.get(classDecl.name())) {
+            res.append(", ").append(getLLVMType((VariableIntroduction) field.declaration()));
         }
+        return res.append(" }\n").toString();
     }
 
     /**
-     * Calculate how many bytes the variable corresponding to the ST symbol provided take up
-     * in the stack.
+     * The offsets of the pointer fields of a class's instances, for the collector to follow: their count
+     * followed by the offsets, or null if there are none
      */
-    private int getSizeInBytes(STSymbol symbol){
-        VariableIntroduction varIntro = (VariableIntroduction) symbol.declaration();
-        String LLVMType = getLLVMType(varIntro);
-        if(LLVMType.equals("i32")) return 4;
-        if(LLVMType.equals("i32*")) return 8;
-        if(LLVMType.equals("i1")) return 1;
-        if(LLVMType.equals("i8*")) return 8;
-        else{
-            System.out.println("problem in getLlvmType");
-            return 0;
+    private String generateGCMap(ClassDecl classDecl) {
+        List<STSymbol> fields = instanceTemplates.get(classDecl.name());
+        String structType = getStructType(classDecl.name());
+        List<String> offsets = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String fieldType = getLLVMType((VariableIntroduction) fields.get(i).declaration());
+            if (!isPointer(fieldType)) continue;
+            offsets.add(String.format("i32 ptrtoint (%s* getelementptr (%s, %s* null, i32 0, i32 %d) to i32)",
+                    fieldType, structType, structType, i + 1));
         }
+        if (offsets.isEmpty()) return "";
+        return String.format("@.%s_gcmap = constant [%d x i32] [i32 %d, %s]\n",
+                classDecl.name(), offsets.size() + 1, offsets.size(), String.join(", ", offsets));
     }
 
     /**
-     * Calculate, according to the instanceShape list of fields in class instance,
-     * at what offset from the base %this ptr the field we're searching for is located.
+     * @return the i32* operand pointing to the class's GC map
      */
-    private int calcFieldOffset(List<STSymbol> instanceShape, String fieldName) {
-        int offset = 8; // initialized to 8 because at offset 0 there's a VT ptr
-        for (STSymbol field : instanceShape) {
-            if (field.name().equals(fieldName)) {
-                break;
+    private String getGCMap(String className) {
+        int pointerFields = layouts.get(className).pointerFieldCount();
+        if (pointerFields == 0) return "i32* null";
+        return String.format("i32* getelementptr ([%d x i32], [%d x i32]* @.%s_gcmap, i32 0, i32 0)",
+                pointerFields + 1, pointerFields + 1, className);
+    }
+
+    private boolean isPointer(String llType) {
+        return llType.equals("i8*") || llType.equals(ARRAY_TYPE + "*");
+    }
+
+    /**
+     * The allocation counters of the classes the program may instantiate, and the report of the statistics
+     */
+    private String generateAllocStats() {
+        StringBuilder counters = new StringBuilder();
+        StringBuilder report = new StringBuilder("define void @print_alloc_stats() {\n" +
+                "\t%header = getelementptr inbounds [24 x i8], [24 x i8]* @_cAllocStats, i32 0, i32 0\n" +
+                "\tcall i32 (i32, i8*, ...) @dprintf(i32 2, i8* %header)\n" +
+                "\t%fmt = getelementptr inbounds [30 x i8], [30 x i8]* @_cClassAllocs, i32 0, i32 0\n");
+        for (ClassDecl classDecl : allClasses()) {
+            String name = classDecl.name();
+            if (!rta.isLive(name)) continue;
+            counters.append(String.format("@.%s_allocs = global i64 0\n@.%s_alloc_bytes = global i64 0\n", name, name));
+            counters.append(String.format("@.%s_name = constant [%d x i8] c\"%s\\00\"\n", name, name.length() + 1, name));
+            report.append(String.format("\t%%%s.count = load i64, i64* @.%s_allocs\n", name, name));
+            report.append(String.format("\t%%%s.bytes = load i64, i64* @.%s_alloc_bytes\n", name, name));
+            report.append(String.format("\t%%%s.name = getelementptr inbounds [%d x i8], [%d x i8]* @.%s_name, i32 0, i32 0\n",
+                    name, name.length() + 1, name.length() + 1, name));
+            report.append(String.format(
+                    "\tcall i32 (i32, i8*, ...) @dprintf(i32 2, i8* %%fmt, i8* %%%s.name, i64 %%%s.count, i64 %%%s.bytes)\n",
+                    name, name, name));
+        }
+        report.append("\tcall void @print_array_alloc_stats()\n\tret void\n}\n\n");
+        return counters.append("\n").append(report).toString();
+    }
+
+    private List<ClassDecl> allClasses() {
+        List<ClassDecl> res = new ArrayList<>();
+        for (ClassDecl root : forest.getRoots()) {
+            res.add(root);
+            if (forest.getDescendants(root) != null) res.addAll(forest.getDescendants(root));
+        }
+        return res;
+    }
+
+    /**
+     * The profile counters and names of the methods the program may call, and the function printing them
+     */
+    private String generateProfileTable() {
+        List<String> names = new ArrayList<>();
+        StringBuilder res = new StringBuilder();
+        for (ClassDecl classDecl : allClasses()) {
+            for (MethodDecl methodDecl : classDecl.methoddecls()) {
+                if (!rta.isReachable(methodDecl)) continue;
+                String name = classDecl.name() + "." + methodDecl.name();
+                profileIndex.put(methodDecl, names.size());
+                res.append(String.format("@.%s_name = constant [%d x i8] c\"%s\\00\"\n", name, name.length() + 1, name));
+                names.add(String.format("i8* getelementptr inbounds ([%d x i8], [%d x i8]* @.%s_name, i32 0, i32 0)",
+                        name.length() + 1, name.length() + 1, name));
             }
-            offset += getSizeInBytes(field);
         }
-        return offset;
+        int n = names.size();
+        res.append(String.format("@_profile_names = constant [%d x i8*] [%s]\n", n, String.join(", ", names)));
+        res.append(String.format("@_profile = global [%d x [3 x i64]] zeroinitializer\n\n", n));
+        res.append("define void @dump_profile() {\n");
+        res.append(String.format("\t%%names = getelementptr inbounds [%d x i8*], [%d x i8*]* @_profile_names, i32 0, i32 0\n", n, n));
+        res.append(String.format(
+                "\t%%counters = getelementptr inbounds [%d x [3 x i64]], [%d x [3 x i64]]* @_profile, i32 0, i32 0\n", n, n));
+        res.append(String.format("\tcall void @print_profile(i8** %%names, [3 x i64]* %%counters, i64 %d)\n", n));
+        return res.append("\tret void\n}\n\n").toString();
+    }
+
+    /**
+     * With --profile, reads the cycle counter on entry to the method, and starts counting the cycles of
+     * the methods it calls from zero, saving the count of its caller
+     */
+    private void emitProfileEntry() {
+        if (!options.profile()) return;
+        LLVMProgram.append("\t%prof.start = call i64 @llvm.readcyclecounter()\n");
+        LLVMProgram.append("\t%prof.caller_children = load i64, i64* @_prof_children\n");
+        LLVMProgram.append("\tstore i64 0, i64* @_prof_children\n");
+    }
+
+    /**
+     * With --profile, adds the call and its cycles to the method's counters before it returns, and the cycles
+     * to the caller's count of the cycles of the methods it called
+     */
+    private void emitProfileExit(MethodDecl methodDecl) {
+        if (!options.profile()) return;
+        int n = profileIndex.size();
+        int index = profileIndex.get(methodDecl);
+        LLVMProgram.append("\t%prof.end = call i64 @llvm.readcyclecounter()\n");
+        LLVMProgram.append("\t%prof.total = sub i64 %prof.end, %prof.start\n");
+        LLVMProgram.append("\t%prof.children = load i64, i64* @_prof_children\n");
+        LLVMProgram.append("\t%prof.self = sub i64 %prof.total, %prof.children\n");
+        String[] counters = {"calls", "inclusive", "self"};
+        String[] added = {"1", "%prof.total", "%prof.self"};
+        for (int i = 0; i < counters.length; i++) {
+            LLVMProgram.append(String.format(
+                    "\t%%prof.%s_ptr = getelementptr inbounds [%d x [3 x i64]], [%d x [3 x i64]]* @_profile, i32 0, i32 %d, i32 %d\n",
+                    counters[i], n, n, index, i));
+            LLVMProgram.append(String.format("\t%%prof.%s_count = load i64, i64* %%prof.%s_ptr\n", counters[i], counters[i]));
+            LLVMProgram.append(String.format("\t%%prof.%s_next = add i64 %%prof.%s_count, %s\n", counters[i], counters[i], added[i]));
+            LLVMProgram.append(String.format("\tstore i64 %%prof.%s_next, i64* %%prof.%s_ptr\n", counters[i], counters[i]));
+        }
+        LLVMProgram.append("\t%prof.caller_children_next = add i64 %prof.caller_children, %prof.total\n");
+        LLVMProgram.append("\tstore i64 %prof.caller_children_next, i64* @_prof_children\n");
+    }
+
+    /**
+     * With --alloc-stats, adds an allocation of sizeReg bytes to the counters the operands point to
+     */
+    private void emitAllocCount(String countPtr, String bytesPtr, int sizeReg) {
+        LLVMProgram.append(String.format("\t%%_%d = load i64, i64* %s\n", methodCurrRegIndex++, countPtr));
+        LLVMProgram.append(String.format("\t%%_%d = add i64 %%_%d, 1\n", methodCurrRegIndex, methodCurrRegIndex - 1));
+        LLVMProgram.append(String.format("\tstore i64 %%_%d, i64* %s\n", methodCurrRegIndex++, countPtr));
+        LLVMProgram.append(String.format("\t%%_%d = load i64, i64* %s\n", methodCurrRegIndex++, bytesPtr));
+        LLVMProgram.append(String.format("\t%%_%d = add i64 %%_%d, %%_%d\n", methodCurrRegIndex, methodCurrRegIndex - 1, sizeReg));
+        LLVMProgram.append(String.format("\tstore i64 %%_%d, i64* %s\n", methodCurrRegIndex++, bytesPtr));
+    }
+
+    private void appendStructTypes(ClassDecl classDecl) {
+        LLVMProgram.append(generateStructType(classDecl));
+        if (options.gc()) {
+            LLVMProgram.append(generateGCMap(classDecl));
+        }
+        if(forest.getChildren(classDecl) == null) return;
+        for(ClassDecl child : forest.getChildren(classDecl)){
+            appendStructTypes(child);
+        }
+    }
+
+    /**
+     * Emits the address of a field of %this, accessing it through the struct type of the given class
+     * @return register holding the field's address
+     */
+    private int emitFieldPtr(String className, String fieldName) {
+        String structType = getStructType(className);
+        int index = layouts.get(className).fieldIndex(fieldName);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = bitcast i8* %%this to %s*\n", methodCurrRegIndex++, structType
+        ));
+        LLVMProgram.append(String.format(
+                "\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 %d\n",
+                methodCurrRegIndex, structType, structType, methodCurrRegIndex - 1, index
+        ));
+        return methodCurrRegIndex++;
+    }
+
+    /**
+     * Emits the address of the length of the array
+     * @return register holding the length's i32* address
+     */
+    private int emitLengthPtr(int arrayPtrReg) {
+        LLVMProgram.append(String.format(
+                "\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 0\n",
+                methodCurrRegIndex, ARRAY_TYPE, ARRAY_TYPE, arrayPtrReg
+        ));
+        return methodCurrRegIndex++;
     }
 
     @Override
     public void visit(ClassDecl classDecl) {
-        LLVMProgram.append(generateVTable(classDecl));
+        //only the classes the program instantiates need a vtable, and only the methods it may call need code
+        if (rta.isLive(classDecl.name())) {
+            LLVMProgram.append(generateVTable(classDecl));
+        }
         for (MethodDecl methodDecl : classDecl.methoddecls()){
-            methodDecl.accept(this);
+            if (rta.isReachable(methodDecl)) {
+                methodDecl.accept(this);
+            }
         }
     }
 
     @Override
     public void visit(MainClass mainClass) {
-        LLVMProgram.append("define i32 @main() {\n");
+        LLVMProgram.append(MAIN_HEADER);
+        currentBlockLabel = null;
+        if (options.allocStats()) {
+            LLVMProgram.append("\tcall i32 @atexit(void ()* @print_alloc_stats)\n");
+        }
+        if (options.profile()) {
+            LLVMProgram.append("\tcall i32 @atexit(void ()* @dump_profile)\n");
+        }
+        usesOobTrap = false;
+        beginGCFrame();
         mainClass.mainStatement().accept(this);
-        LLVMProgram.append("\tret i32 0\n}");
+        endGCFrame(Collections.emptyList(), false);
+        LLVMProgram.append("\tret i32 0\n");
+        appendOobTrap();
+        LLVMProgram.append("}");
     }
 
     @Override
     public void visit(MethodDecl methodDecl) {
         methodCurrRegIndex = 0;
         methodCurrLabelIndex = 0;
+        usesOobTrap = false;
+        String name = methodDecl.enclosingScope().scopeName() + "." + methodDecl.name();
+        if (options.memoize() && purity.isRecursivePure(methodDecl)) {
+            emitMemoWrapper(methodDecl, name);
+            name = name.concat(".body");
+        }
         String signature = "define " + getLLVMType(methodDecl.returnType()) + " @";
-        signature = signature.concat(methodDecl.enclosingScope().scopeName() + "." + methodDecl.name() + "(i8* %this");
+        signature = signature.concat(name + "(i8* %this");
         for (FormalArg formal : methodDecl.formals()) {
             signature = signature.concat(", " + getLLVMType(formal) + " %." + formal.name());
         }
         LLVMProgram.append(signature.concat(") {\n"));
+        currentBlockLabel = null;
         for(FormalArg formal : methodDecl.formals()) {
             formal.accept(this);
         }
         for (VarDecl varDecl : methodDecl.vardecls()) {
             varDecl.accept(this);
         }
-        for (Statement stmt : methodDecl.body()) {
-            stmt.accept(this);
+        beginGCFrame();
+        emitProfileEntry();
+        for (int i = 0; i < methodDecl.body().size(); i++) {
+            precedingStatements = methodDecl.body().subList(0, i);
+            methodDecl.body().get(i).accept(this);
         }
-        methodDecl.ret().accept(this);
-        if (methodDecl.ret().getClass().getName().equals("ast.ThisExpr")) {
-            LLVMProgram.append(String.format(
-                    "\tret %s %%this\n", getLLVMType(methodDecl.returnType())));
-        } else {
+        String retValue = emitValue(methodDecl.ret());
+        List<VariableIntroduction> variables = new ArrayList<>(methodDecl.formals());
+        variables.addAll(methodDecl.vardecls());
+        endGCFrame(variables, true);
+        emitProfileExit(methodDecl);
+        LLVMProgram.append(String.format(
+                "\tret %s %s\n", getLLVMType(methodDecl.returnType()), retValue));
+        appendOobTrap();
+        LLVMProgram.append("}\n\n");
+    }
+
+    /**
+     * With --memoize, emits the memoized method's table, and in place of the method a function returning the
+     * result stored for its arguments, or else calling the method's body, renamed to Class.method.body, and
+     * storing its result. ints and booleans are both stored as i32.
+     */
+    private void emitMemoWrapper(MethodDecl methodDecl, String name) {
+        String returnType = getLLVMType(methodDecl.returnType());
+        List<FormalArg> formals = methodDecl.formals();
+        int n = formals.size();
+        String table = "%memo.table* @." + name + "_memo";
+        LLVMProgram.append(String.format("@.%s_memo = global %%memo.table zeroinitializer\n\n", name));
+        StringBuilder params = new StringBuilder("i8* %this");
+        for (FormalArg formal : formals) {
+            params.append(", ").append(getLLVMType(formal)).append(" %.").append(formal.name());
+        }
+        LLVMProgram.append(String.format("define %s @%s(%s) {\n", returnType, name, params));
+        currentBlockLabel = null;
+        LLVMProgram.append(String.format("\t%%memo.args = alloca [%d x i32]\n", n));
+        LLVMProgram.append("\t%memo.result = alloca i32\n");
+        for (int i = 0; i < n; i++) {
+            String value = "%." + formals.get(i).name();
+            if (getLLVMType(formals.get(i)).equals("i1")) {
+                LLVMProgram.append(String.format("\t%%memo.arg%d.value = zext i1 %s to i32\n", i, value));
+                value = "%memo.arg" + i + ".value";
+            }
             LLVMProgram.append(String.format(
-                    "\tret %s %%_%d\n", getLLVMType(methodDecl.returnType()), methodCurrRegIndex-1));
+                    "\t%%memo.arg%d = getelementptr inbounds [%d x i32], [%d x i32]* %%memo.args, i32 0, i32 %d\n",
+                    i, n, n, i));
+            LLVMProgram.append(String.format("\tstore i32 %s, i32* %%memo.arg%d\n", value, i));
         }
+        LLVMProgram.append(String.format(
+                "\t%%memo.keys = getelementptr inbounds [%d x i32], [%d x i32]* %%memo.args, i32 0, i32 0\n", n, n));
+        LLVMProgram.append(String.format(
+                "\t%%memo.found = call i1 @memo_lookup(%s, i32* %%memo.keys, i32 %d, i32* %%memo.result)\n", table, n));
+        LLVMProgram.append("\tbr i1 %memo.found, label %memo_hit, label %memo_miss\n");
+        appendLabel("memo_hit");
+        LLVMProgram.append("\t%memo.stored = load i32, i32* %memo.result\n");
+        String stored = "%memo.stored";
+        if (returnType.equals("i1")) {
+            LLVMProgram.append("\t%memo.stored.value = trunc i32 %memo.stored to i1\n");
+            stored = "%memo.stored.value";
+        }
+        LLVMProgram.append(String.format("\tret %s %s\n", returnType, stored));
+        appendLabel("memo_miss");
+        // the parameters are passed on as they are
+        LLVMProgram.append(String.format("\t%%memo.computed = call %s @%s.body(%s)\n", returnType, name, params));
+        String computed = "%memo.computed";
+        if (returnType.equals("i1")) {
+            LLVMProgram.append("\t%memo.computed.value = zext i1 %memo.computed to i32\n");
+            computed = "%memo.computed.value";
+        }
+        LLVMProgram.append(String.format(
+                "\tcall void @memo_store(%s, i32* %%memo.keys, i32 %d, i32 %s)\n", table, n, computed));
+        LLVMProgram.append(String.format("\tret %s %%memo.computed\n", returnType));
         LLVMProgram.append("}\n\n");
     }
 
+    /**
+     * Marks the start of the function's body, after the allocas of its variables
+     */
+    private void beginGCFrame() {
+        gcFramePos = LLVMProgram.length();
+        gcTempDepth = 0;
+        gcTempCount = 0;
+    }
+
+    /**
+     * With --gc, inserts at the start of the function's body the setup of a shadow stack frame holding the
+     * addresses of its roots - %this, its pointer variables and its temporary roots - and links it to
+     * @_gc_top. Then emits its unlinking, before the function returns.
+     * @param variables the function's formals and local variables
+     */
+    private void endGCFrame(List<VariableIntroduction> variables, boolean hasThis) {
+        if (!options.gc()) return;
+        StringBuilder setup = new StringBuilder();
+        List<String> cells = new ArrayList<>();
+        List<String> cellTypes = new ArrayList<>();
+        if (hasThis) {
+            setup.append("\t%gc.this = alloca i8*\n\tstore i8* %this, i8** %gc.this\n");
+            cells.add("%gc.this");
+            cellTypes.add("i8*");
+        }
+        for (VariableIntroduction variable : variables) {
+            String type = getLLVMType(variable);
+            if (!isPointer(type)) continue;
+            // formals already hold their value, local variables may be read by a collection before they're assigned
+            if (variable.kind() == AstKind.VAR_DECL) {
+                setup.append(String.format("\tstore %s null, %s* %%%s\n", type, type, variable.name()));
+            }
+            cells.add("%" + variable.name());
+            cellTypes.add(type);
+        }
+        for (int i = 0; i < gcTempCount; i++) {
+            setup.append(String.format("\t%%gc.tmp%d = alloca i8*\n\tstore i8* null, i8** %%gc.tmp%d\n", i, i));
+            cells.add("%gc.tmp" + i);
+            cellTypes.add("i8*");
+        }
+        if (cells.isEmpty()) return;
+
+        String frameType = String.format("{ i8*, i64, [%d x i8**] }", cells.size());
+        setup.append(String.format("\t%%gc.frame = alloca %s\n", frameType));
+        setup.append("\t%gc.prev = load i8*, i8** @_gc_top\n");
+        setup.append(String.format("\t%%gc.link = getelementptr inbounds %s, %s* %%gc.frame, i32 0, i32 0\n", frameType, frameType));
+        setup.append("\tstore i8* %gc.prev, i8** %gc.link\n");
+        setup.append(String.format("\t%%gc.count = getelementptr inbounds %s, %s* %%gc.frame, i32 0, i32 1\n", frameType, frameType));
+        setup.append(String.format("\tstore i64 %d, i64* %%gc.count\n", cells.size()));
+        for (int i = 0; i < cells.size(); i++) {
+            String cell = cells.get(i);
+            if (!cellTypes.get(i).equals("i8*")) {
+                setup.append(String.format("\t%%gc.cell%d = bitcast %s* %s to i8**\n", i, cellTypes.get(i), cell));
+                cell = "%gc.cell" + i;
+            }
+            setup.append(String.format("\t%%gc.root%d = getelementptr inbounds %s, %s* %%gc.frame, i32 0, i32 2, i32 %d\n",
+                    i, frameType, frameType, i));
+            setup.append(String.format("\tstore i8** %s, i8*** %%gc.root%d\n", cell, i));
+        }
+        setup.append(String.format("\t%%gc.top = bitcast %s* %%gc.frame to i8*\n", frameType));
+        setup.append("\tstore i8* %gc.top, i8** @_gc_top\n");
+        LLVMProgram.insert(gcFramePos, setup);
+        LLVMProgram.append("\tstore i8* %gc.prev, i8** @_gc_top\n");
+    }
+
+    /**
+     * With --gc, stores a pointer the code holds in a register while evaluating something that may allocate in
+     * a temporary root, so that its object survives a collection. The roots taken are released by restoring
+     * gcTempDepth once the pointer is no longer needed.
+     */
+    private void rootTemp(String type, String value) {
+        if (!options.gc() || value.equals("%this")) return;
+        int slot = gcTempDepth++;
+        gcTempCount = Math.max(gcTempCount, gcTempDepth);
+        if (!type.equals("i8*")) {
+            LLVMProgram.append(String.format("\t%%_%d = bitcast %s %s to i8*\n", methodCurrRegIndex, type, value));
+            value = "%_" + methodCurrRegIndex++;
+        }
+        LLVMProgram.append(String.format("\tstore i8* %s, i8** %%gc.tmp%d\n", value, slot));
+    }
+
     @Override
     public void visit(FormalArg formalArg) {
         String name = formalArg.name();
@@ -204,37 +1299,59 @@ public class LLVMVisitor implements Visitor{
     @Override
     public void visit(BlockStatement blockStatement) {
         for (int i = 0; i < blockStatement.statements().size(); i++) {
+            precedingStatements = blockStatement.statements().subList(0, i);
             blockStatement.statements().get(i).accept(this);
         }
     }
 
     @Override
     public void visit(IfStatement ifStatement) {
+        precedingStatements = Collections.emptyList();
         ifStatement.cond().accept(this);
         LLVMProgram.append(String.format(
                 "\tbr i1 %%_%d, label %%if%d, label %%if%d\n", methodCurrRegIndex -1, methodCurrLabelIndex, methodCurrLabelIndex +1));
-        LLVMProgram.append(String.format(
-                "if%d:\n", methodCurrLabelIndex++
-        ));
+        appendLabel("if" + methodCurrLabelIndex++);
         int elseLabelIndex = methodCurrLabelIndex++;
         int end_if = methodCurrLabelIndex++;
         ifStatement.thencase().accept(this);
         LLVMProgram.append(String.format("\tbr label %%if%d\n", end_if));
-        LLVMProgram.append(String.format("if%d:\n", elseLabelIndex));
+        appendLabel("if" + elseLabelIndex);
         ifStatement.elsecase().accept(this);
         LLVMProgram.append(String.format("\tbr label %%if%d\n", end_if));
-        LLVMProgram.append(String.format("if%d:\n", end_if));
+        appendLabel("if" + end_if);
     }
 
     @Override
     public void visit(WhileStatement whileStatement) {
+        LoopAnalysis loop = new LoopAnalysis(whileStatement);
+        AssignStatement initializer = counterInitializer(loop, precedingStatements);
+        precedingStatements = Collections.emptyList();
+        Map<String, HoistedArray> outerHoistedArrays = new HashMap<>(hoistedArrays);
+        hoistLoopInvariants(loop);
+        if (!tryFullUnroll(loop, initializer)) {
+            int factor = partialUnrollFactor(loop);
+            int outerBudget = unrollBudget;
+            if (factor > 1) {
+                // the unrolled iterations and the remainder loop are factor + 1 copies of the body
+                unrollBudget = outerBudget / (factor + 1);
+                emitUnrolledIterations(loop, factor);
+            }
+            emitLoop(whileStatement);
+            unrollBudget = outerBudget;
+        }
+        hoistedArrays.clear();
+        hoistedArrays.putAll(outerHoistedArrays);
+    }
+
+    /**
+     * Emits the loop as is: the condition is checked before every run of the body.
+     */
+    private void emitLoop(WhileStatement whileStatement) {
         LLVMProgram.append(String.format(
                 "\tbr label %%while_cond%d\n", methodCurrLabelIndex
         ));
         int whileCondLabelIndex = methodCurrLabelIndex;
-        LLVMProgram.append(String.format(
-                "while_cond%d:\n", methodCurrLabelIndex++
-        ));
+        appendLabel("while_cond" + methodCurrLabelIndex++);
         whileStatement.cond().accept(this);
         LLVMProgram.append(String.format(
                 "\tbr i1 %%_%d, label %%while_loop%d, label %%while_end%d\n",
@@ -242,16 +1359,220 @@ public class LLVMVisitor implements Visitor{
         ));
         int while_loop = methodCurrLabelIndex++;
         int while_end = methodCurrLabelIndex++;
-        LLVMProgram.append(String.format(
-                "while_loop%d:\n", while_loop
-        ));
+        appendLabel("while_loop" + while_loop);
         whileStatement.body().accept(this);
         LLVMProgram.append(String.format(
                 "\tbr label %%while_cond%d\n", whileCondLabelIndex
         ));
+        appendLabel("while_end" + while_end);
+    }
+
+    /**
+     * Looks for the statement giving the counter of a counted loop its value when the loop is entered:
+     * an assignment of a literal to it, followed only by assignments to other variables and prints. Those
+     * can't change the counter - it's a local, and locals can't be assigned by the methods they may call.
+     * @return the assignment, or null if there's none
+     */
+    private AssignStatement counterInitializer(LoopAnalysis loop, List<Statement> preceding) {
+        if (!loop.isCounted()) return null;
+        for (int i = preceding.size() - 1; i >= 0; i--) {
+            Statement statement = preceding.get(i);
+            AstKind kind = statement.kind();
+            if (kind == AstKind.ASSIGN_STATEMENT) {
+                AssignStatement assign = (AssignStatement) statement;
+                if (!assign.lv().equals(loop.counter())) continue;
+                return LoopAnalysis.isLiteral(assign.rv()) ? assign : null;
+            }
+            if (kind != AstKind.ASSIGN_ARRAY_STATEMENT && kind != AstKind.SYSOUT_STATEMENT) return null;
+        }
+        return null;
+    }
+
+    /**
+     * A counted loop with a literal bound whose counter is initialized to a literal runs a known number of
+     * times. If all the copies of the body fit in the unroll budget, they're emitted back to back with no
+     * condition checks - the condition has no side effects, so skipping it is safe. The loops nested in the
+     * body share the budget between its copies.
+     * @return true if the loop was fully unrolled
+     */
+    private boolean tryFullUnroll(LoopAnalysis loop, AssignStatement initializer) {
+        int budget = unrollBudget;
+        if (budget == 0 || initializer == null) return false;
+        int tripCount = loop.tripCount(((IntegerLiteralExpr) initializer.rv()).num(), budget / loop.size());
+        if (tripCount == -1) return false;
+        unrollBudget = tripCount == 0 ? budget : budget / tripCount;
+        for (int i = 0; i < tripCount; i++) {
+            precedingStatements = Collections.emptyList();
+            loop.loop().body().accept(this);
+        }
+        unrollBudget = budget;
+        return true;
+    }
+
+    /**
+     * @return how many copies of the body an iteration of the unrolled counted loop can run, so that they and
+     * the remainder loop fit in the unroll budget together, or 1 if the loop shouldn't be unrolled
+     */
+    private int partialUnrollFactor(LoopAnalysis loop) {
+        if (!loop.isCounted()) return 1;
+        int copies = unrollBudget / loop.size() - 1;
+        return Math.max(1, Math.min(MAX_UNROLL_FACTOR, copies));
+    }
+
+    /**
+     * Emits a loop running factor copies of the body per iteration for as long as all of them would pass the
+     * loop condition, that is while counter + (factor - 1) * step is still on the right side of the bound.
+     * The check is done in i64 so that it can't overflow. The iterations left over are then run by the
+     * original loop, emitted right after this one.
+     */
+    private void emitUnrolledIterations(LoopAnalysis loop, int factor) {
+        LtExpr cond = (LtExpr) loop.loop().cond();
+        Expr counter = loop.countsUp() ? cond.e1() : cond.e2();
+        String bound;
+        if (LoopAnalysis.isLiteral(loop.bound())) {
+            bound = Integer.toString(((IntegerLiteralExpr) loop.bound()).num());
+        } else {
+            int boundReg = emitIntValue(loop.bound());
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = sext i32 %%_%d to i64\n", methodCurrRegIndex, boundReg
+            ));
+            bound = "%_" + methodCurrRegIndex++;
+        }
+        int unrollCond = methodCurrLabelIndex++;
+        int unrollLoop = methodCurrLabelIndex++;
+        int unrollEnd = methodCurrLabelIndex++;
+        LLVMProgram.append(String.format("\tbr label %%unroll_cond%d\n", unrollCond));
+        appendLabel("unroll_cond" + unrollCond);
+        counter.accept(this);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = sext i32 %%_%d to i64\n", methodCurrRegIndex, methodCurrRegIndex-1
+        ));
+        methodCurrRegIndex++;
+        long lastOffset = (long) (factor - 1) * loop.inductionStep(loop.counter());
+        LLVMProgram.append(String.format(
+                "\t%%_%d = add i64 %%_%d, %d\n", methodCurrRegIndex, methodCurrRegIndex-1, lastOffset
+        ));
+        methodCurrRegIndex++;
+        String last = "%_" + (methodCurrRegIndex-1);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = icmp slt i64 %s, %s\n",
+                methodCurrRegIndex, loop.countsUp() ? last : bound, loop.countsUp() ? bound : last
+        ));
         LLVMProgram.append(String.format(
-                "while_end%d:\n", while_end
+                "\tbr i1 %%_%d, label %%unroll_loop%d, label %%unroll_end%d\n", methodCurrRegIndex++, unrollLoop, unrollEnd
         ));
+        appendLabel("unroll_loop" + unrollLoop);
+        for (int i = 0; i < factor; i++) {
+            precedingStatements = Collections.emptyList();
+            loop.loop().body().accept(this);
+        }
+        LLVMProgram.append(String.format("\tbr label %%unroll_cond%d\n", unrollCond));
+        appendLabel("unroll_end" + unrollEnd);
+    }
+
+    /**
+     * Emits, before the loop is entered, the loads of the loop invariant arrays the loop accesses,
+     * so that each iteration indexes off a precomputed element pointer instead of reloading the array and
+     * recomputing index + 1.
+     * If the loop is in the canonical form while (i < arr.length), the length is hoisted as well - the condition
+     * is evaluated at least once, so loading it up front can't fault where the original loop wouldn't.
+     */
+    private void hoistLoopInvariants(LoopAnalysis loop) {
+        for (String arrayName : loop.invariantArrays()) {
+            if (hoistedArrays.containsKey(arrayName)) continue;
+            IdentifierExpr arrayVar = new IdentifierExpr(arrayName);
+            arrayVar.setNameId(programSymbolTable.names().lookup(arrayName));
+            arrayVar.setEnclosingScope(loop.loop().enclosingScope());
+            arrayVar.accept(binder);
+            arrayVar.accept(this);
+            int ptrReg = methodCurrRegIndex - 1;
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 1, i32 0\n",
+                    methodCurrRegIndex, ARRAY_TYPE, ARRAY_TYPE, ptrReg
+            ));
+            hoistedArrays.put(arrayName, new HoistedArray(ptrReg, methodCurrRegIndex++, -1));
+        }
+        String boundArray = canonicalBoundArray(loop);
+        if (boundArray != null && hoistedArrays.containsKey(boundArray) && hoistedArrays.get(boundArray).lengthReg == -1) {
+            HoistedArray hoisted = hoistedArrays.get(boundArray);
+            int lengthPtrReg = emitLengthPtr(hoisted.ptrReg);
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex, lengthPtrReg
+            ));
+            hoistedArrays.put(boundArray, new HoistedArray(hoisted.ptrReg, hoisted.dataReg, methodCurrRegIndex++));
+        }
+    }
+
+    /**
+     * @return the name of arr if the loop condition is i < arr.length, with a side effect free left operand
+     * and a loop invariant array, otherwise null
+     */
+    private String canonicalBoundArray(LoopAnalysis loop) {
+        Expr cond = loop.loop().cond();
+        if (cond.kind() != AstKind.LT_EXPR) return null;
+        LtExpr lt = (LtExpr) cond;
+        AstKind leftKind = lt.e1().kind();
+        if (leftKind != AstKind.IDENTIFIER_EXPR && leftKind != AstKind.INTEGER_LITERAL_EXPR) return null;
+        if (lt.e2().kind() != AstKind.ARRAY_LENGTH_EXPR) return null;
+        Expr arrayExpr = ((ArrayLengthExpr) lt.e2()).arrayExpr();
+        if (arrayExpr.kind() != AstKind.IDENTIFIER_EXPR) return null;
+        String arrayName = ((IdentifierExpr) arrayExpr).id();
+        return loop.isInvariant(arrayName) ? arrayName : null;
+    }
+
+    /**
+     * @return the hoisted loads of arrayExpr if it's a variable hoisted by an enclosing loop, otherwise null
+     */
+    private HoistedArray hoistedArray(Expr arrayExpr) {
+        if (arrayExpr.kind() != AstKind.IDENTIFIER_EXPR) return null;
+        return hoistedArrays.get(((IdentifierExpr) arrayExpr).id());
+    }
+
+    /**
+     * Emits the code computing the value of e and returns the operand holding it: %this for this, the
+     * allocated pointer for new expressions, otherwise the last register assigned
+     */
+    private String emitValue(Expr e) {
+        AstKind kind = e.kind();
+        if (kind == AstKind.THIS_EXPR) return "%this";
+        e.accept(this);
+        boolean isNew = kind == AstKind.NEW_OBJECT_EXPR || kind == AstKind.NEW_INT_ARRAY_EXPR;
+        return "%_" + (isNew ? lastCallocReg : methodCurrRegIndex-1);
+    }
+
+    /**
+     * @return the label of the basic block being emitted. A function's entry block has none, so if it's the
+     * current block, it's ended here with a branch to a new labeled block.
+     */
+    private String currentBlock() {
+        if (currentBlockLabel == null) {
+            int entry = methodCurrLabelIndex++;
+            LLVMProgram.append(String.format("\tbr label %%entry%d\n", entry));
+            appendLabel("entry" + entry);
+        }
+        return currentBlockLabel;
+    }
+
+    /**
+     * Starts a new basic block with the label
+     */
+    private void appendLabel(String label) {
+        LLVMProgram.append(label).append(":\n");
+        currentBlockLabel = label;
+    }
+
+    /**
+     * Emits the code computing the int value of e and returns the register holding it.
+     * Unlike accepting e directly, the register isn't necessarily the last one assigned - hoisted array
+     * lengths are used as is.
+     */
+    private int emitIntValue(Expr e) {
+        if (e.kind() == AstKind.ARRAY_LENGTH_EXPR) {
+            HoistedArray hoisted = hoistedArray(((ArrayLengthExpr) e).arrayExpr());
+            if (hoisted != null && hoisted.lengthReg != -1) return hoisted.lengthReg;
+        }
+        e.accept(this);
+        return methodCurrRegIndex - 1;
     }
 
     @Override
@@ -265,16 +1586,16 @@ public class LLVMVisitor implements Visitor{
     @Override
     public void visit(AssignStatement assignStatement) {
         String assigneeName = assignStatement.lv();
-        SymbolTable enclosingST = STLookup.findDeclTable(assigneeName, forest, assignStatement.enclosingScope(), programSymbolTable) ;
-        VariableIntroduction assigneeVarIntro = (VariableIntroduction) enclosingST.getSymbol(assigneeName, false).declaration();
+        STSymbol assignee = assignStatement.binding();
+        VariableIntroduction assigneeVarIntro = (VariableIntroduction) assignee.declaration();
         String assigneeLLType = getLLVMType(assigneeVarIntro);
-        boolean rvIsThis = assignStatement.rv().getClass().getName().equals("ast.ThisExpr");
+        boolean rvIsThis = assignStatement.rv().kind() == AstKind.THIS_EXPR;
         /*
           Case 1: assignee is a local variable in the method
          */
-        if (assignStatement.enclosingScope().contains(assigneeName, false)) {
+        if (assignee.kind() == STSymbol.SymbolKind.VAR) {
             assignStatement.rv().accept(this);
-            boolean isNew = assignStatement.rv().getClass().getName().equals("ast.NewObjectExpr") || assignStatement.rv().getClass().getName().equals("ast.NewIntArrayExpr");
+            boolean isNew = assignStatement.rv().kind() == AstKind.NEW_OBJECT_EXPR || assignStatement.rv().kind() == AstKind.NEW_INT_ARRAY_EXPR;
             int rvReg = isNew ? lastCallocReg : methodCurrRegIndex-1;
             if(rvIsThis){
                 LLVMProgram.append(String.format(
@@ -289,26 +1610,16 @@ public class LLVMVisitor implements Visitor{
             return;
         }
         String enclosingClassName = assignStatement.enclosingScope().getParent().scopeName();
-        List<STSymbol> classInstanceShape = instanceTemplates.get(enclosingClassName);
+        ClassLayout classLayout = layouts.get(enclosingClassName);
         /*
           Case 2: assignee is a field of %this
          */
-        if (STLookup.classInstanceHasField(classInstanceShape, assigneeName)) {
+        if (classLayout.hasField(assigneeName)) {
             assignStatement.rv().accept(this);
-            boolean isNew = assignStatement.rv().getClass().getName().equals("ast.NewObjectExpr") || assignStatement.rv().getClass().getName().equals("ast.NewIntArrayExpr");
+            boolean isNew = assignStatement.rv().kind() == AstKind.NEW_OBJECT_EXPR || assignStatement.rv().kind() == AstKind.NEW_INT_ARRAY_EXPR;
             int assignedValReg = isNew ? lastCallocReg : methodCurrRegIndex-1;
 
-            int offset = calcFieldOffset(classInstanceShape, assigneeName);
-            int assigneePtrReg = methodCurrRegIndex;
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = getelementptr i8, i8* %%this, i32 %d\n", assigneePtrReg, offset
-            ));
-            methodCurrRegIndex++;
-            int assigneePtrRegPostCast = methodCurrRegIndex;
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = bitcast i8* %%_%d to %s*\n", assigneePtrRegPostCast, assigneePtrReg, assigneeLLType
-            ));
-            methodCurrRegIndex++;
+            int assigneePtrRegPostCast = emitFieldPtr(enclosingClassName, assigneeName);
             if(rvIsThis){
                 LLVMProgram.append(String.format(
                         "\tstore %s %%this, %s* %%_%d\n", assigneeLLType, assigneeLLType, assigneePtrRegPostCast
@@ -324,135 +1635,143 @@ public class LLVMVisitor implements Visitor{
     @Override
     public void visit(AssignArrayStatement assignArrayStatement) {
         String assigneeName = assignArrayStatement.lv();
-        //SymbolTable enclosingST = STLookup.findDeclTable(assigneeName, forest, assignArrayStatement.enclosingScope(), programSymbolTable) ;
         String enclosingClassName = assignArrayStatement.enclosingScope().getParent().scopeName();
-        List<STSymbol> classInstanceShape = instanceTemplates.get(enclosingClassName);
+        ClassLayout classLayout = layouts.get(enclosingClassName);
+        HoistedArray hoisted = hoistedArrays.get(assigneeName);
+        int gcTempMark = gcTempDepth;
         int assigneePtrReg;
+        /*
+          Case 0: the array is loop invariant and was loaded before the loop
+         */
+        if (hoisted != null) {
+            assigneePtrReg = hoisted.ptrReg;
+        }
         /*
           Case 1: assignee is a local variable in the method
          */
-        if (assignArrayStatement.enclosingScope().contains(assigneeName, false)) {
+        else if (assignArrayStatement.binding().kind() == STSymbol.SymbolKind.VAR) {
             assigneePtrReg = methodCurrRegIndex++;
             LLVMProgram.append(String.format(
-                    "\t%%_%d = load i32*, i32** %%%s\n", assigneePtrReg, assigneeName
+                    "\t%%_%d = load %s*, %s** %%%s\n", assigneePtrReg, ARRAY_TYPE, ARRAY_TYPE, assigneeName
             ));
         }
         /*
          * Case 2: assignee is a field of %this
          */
-        else if (STLookup.classInstanceHasField(classInstanceShape, assigneeName)) {
-            assigneePtrReg = methodCurrRegIndex;
-            int offset = calcFieldOffset(classInstanceShape, assigneeName);
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = getelementptr i8, i8* %%this, i32 %d\n", assigneePtrReg, offset
-            ));
-            methodCurrRegIndex++;
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = bitcast i8* %%_%d to i32**\n", methodCurrRegIndex++, assigneePtrReg
-            ));
-            int assigneePtrRegPostCast = methodCurrRegIndex;
+        else if (classLayout.hasField(assigneeName)) {
+            int fieldPtrReg = emitFieldPtr(enclosingClassName, assigneeName);
+            assigneePtrReg = methodCurrRegIndex++;
             LLVMProgram.append(String.format(
-                    "\t%%_%d = load i32*, i32** %%_%d\n", assigneePtrRegPostCast, methodCurrRegIndex - 1
+                    "\t%%_%d = load %s*, %s** %%_%d\n", assigneePtrReg, ARRAY_TYPE, ARRAY_TYPE, fieldPtrReg
             ));
-            methodCurrRegIndex++;
-            assigneePtrReg = assigneePtrRegPostCast;
+            //unlike a local variable, the field may be assigned by a method the index or value calls
+            rootTemp(ARRAY_TYPE + "*", "%_" + assigneePtrReg);
         } else return;
         /*
          * Check that index is legal, throw exception / assign
          */
-        assignArrayStatement.index().accept(this);
-        int indexReg = methodCurrRegIndex-1;
-        validateIndexArray(indexReg, assigneePtrReg);
+        int indexReg = emitIntValue(assignArrayStatement.index());
+        validateIndexArray(indexReg, assigneePtrReg, hoisted == null ? -1 : hoisted.lengthReg);
         // All ok, we can safely index the array now
+        appendLabel("arr_alloc" + methodCurrLabelIndex++);
+        int assignLocPtr = emitElementPtr(assigneePtrReg, hoisted, indexReg);
+        int rvReg = emitIntValue(assignArrayStatement.rv());
+        gcTempDepth = gcTempMark;
         LLVMProgram.append(String.format(
-                "arr_alloc%d:\n", methodCurrLabelIndex++
-        ));
-        LLVMProgram.append(String.format(
-                "\t%%_%d = add i32 %%_%d, 1\n", methodCurrRegIndex++, indexReg
-        )); // indexReg value is now outdated.
-        LLVMProgram.append(String.format(
-                "\t%%_%d = getelementptr i32, i32* %%_%d, i32 %%_%d\n", methodCurrRegIndex, assigneePtrReg, methodCurrRegIndex-1
+                "\tstore i32 %%_%d, i32* %%_%d\n", rvReg, assignLocPtr
         ));
-        int assignLocPtr = methodCurrRegIndex++;
-        assignArrayStatement.rv().accept(this);
+    }
+
+    /**
+     * Emits the address computation of element indexReg of the array.
+     * Hoisted arrays already have a pointer to their first element.
+     * @return register holding the element's i32* address
+     */
+    private int emitElementPtr(int arrayPtrReg, HoistedArray hoisted, int indexReg) {
+        if (hoisted != null) {
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = getelementptr inbounds i32, i32* %%_%d, i32 %%_%d\n", methodCurrRegIndex, hoisted.dataReg, indexReg
+            ));
+            return methodCurrRegIndex++;
+        }
         LLVMProgram.append(String.format(
-                "\tstore i32 %%_%d, i32* %%_%d\n", methodCurrRegIndex-1, assignLocPtr
+                "\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 1, i32 %%_%d\n",
+                methodCurrRegIndex, ARRAY_TYPE, ARRAY_TYPE, arrayPtrReg, indexReg
         ));
+        return methodCurrRegIndex++;
     }
 
     /**
      * if the index is valid than after this the array may be accessed as desired.
      * if the index is not valid, there will be an oob thrown
      * @param indexReg register that is holding the int representing the desired index
-     * @param arrayPtrReg pointer to int
+     * @param arrayPtrReg pointer to the array
+     * @param lengthReg register already holding the array's length, or -1 to load it
      */
-    private void validateIndexArray(int indexReg, int arrayPtrReg){
-        // Check that the index is greater than zero
-        LLVMProgram.append(String.format(
-                "\t%%_%d = icmp slt i32 %%_%d, 0\n", methodCurrRegIndex++, indexReg
-        ));
-        LLVMProgram.append(String.format(
-                "\tbr i1 %%_%d, label %%arr_alloc%d, label %%arr_alloc%d\n", methodCurrRegIndex-1, methodCurrLabelIndex, methodCurrLabelIndex +1
-        ));
-        // Else throw out of bounds exception
-        LLVMProgram.append(String.format(
-                "arr_alloc%d:\n", methodCurrLabelIndex++
-        ));
-        LLVMProgram.append(String.format(
-                "\tcall void @throw_oob()\n\tbr label %%arr_alloc%d\n", methodCurrLabelIndex
-        ));
-        // ok, continue. Load the size of the array (first integer of the array)
-        LLVMProgram.append(String.format(
-                "arr_alloc%d:\n", methodCurrLabelIndex++
-        ));
-        LLVMProgram.append(String.format(
-                "\t%%_%d = getelementptr i32, i32* %%_%d, i32 0\n", methodCurrRegIndex++, arrayPtrReg
-        ));
-        LLVMProgram.append(String.format(
-                "\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex, methodCurrRegIndex-1
-        ));
-        methodCurrRegIndex++;
-        // Check that the index is less than the size of the array
-        // sle rather than slt because the size is off by one because a[0] is occupied
-        // refer to Arrays.ll 87-94
-        LLVMProgram.append(String.format(
-                "\t%%_%d = icmp sle i32 %%_%d, %%_%d\n", methodCurrRegIndex, methodCurrRegIndex-1, indexReg
-        ));
-        methodCurrRegIndex++;
-        LLVMProgram.append(String.format(
-                "\tbr i1 %%_%d, label %%arr_alloc%d, label %%arr_alloc%d\n", methodCurrRegIndex-1, methodCurrLabelIndex, methodCurrLabelIndex +1
-        ));
-        // Else throw out of bounds exception
+    private void validateIndexArray(int indexReg, int arrayPtrReg, int lengthReg){
+        // Load the length of the array
+        if (lengthReg == -1) {
+            int lengthPtrReg = emitLengthPtr(arrayPtrReg);
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex, lengthPtrReg
+            ));
+            lengthReg = methodCurrRegIndex++;
+        }
+        // 0 <= index < length in a single unsigned compare: a negative index is larger than any length
         LLVMProgram.append(String.format(
-                "arr_alloc%d:\n", methodCurrLabelIndex++
+                "\t%%_%d = icmp ult i32 %%_%d, %%_%d\n", methodCurrRegIndex, indexReg, lengthReg
         ));
+        branchToOobTrapUnless(methodCurrRegIndex++);
+        //if we've reached this line of code, the index is legal
+    }
+
+    /**
+     * Ends the current block with a branch to arr_alloc{methodCurrLabelIndex} if the condition holds, and to the
+     * function's oob_trap block otherwise. The caller emits the arr_alloc label.
+     */
+    private void branchToOobTrapUnless(int condReg) {
         LLVMProgram.append(String.format(
-                "\tcall void @throw_oob()\n\tbr label %%arr_alloc%d\n", methodCurrLabelIndex
+                "\tbr i1 %%_%d, label %%arr_alloc%d, label %%oob_trap, !prof !0\n", condReg, methodCurrLabelIndex
         ));
-        //if we've reached this line of code, the index is legal
+        usesOobTrap = true;
+    }
+
+    /**
+     * Emits the block all the failed bounds checks of the function branch to, if any does
+     */
+    private void appendOobTrap() {
+        if (usesOobTrap) {
+            appendLabel("oob_trap");
+            LLVMProgram.append("\tcall void @throw_oob()\n\tunreachable\n");
+        }
     }
 
     @Override
     public void visit(AndExpr e) {
         e.e1().accept(this);
         int leftValReg = methodCurrRegIndex-1;
+        String leftBlock = currentBlock();
         int leftIsTrue = methodCurrLabelIndex++;
         int endAnd = methodCurrLabelIndex++;
         //if false jump to end_and
         String endE1 = String.format(
                 "\tbr i1 %%_%d, label %%if%d, label %%end_and%d\n",
-                leftValReg, leftIsTrue, endAnd) + String.format("if%d:\n", leftIsTrue);
+                leftValReg, leftIsTrue, endAnd);
         LLVMProgram.append(endE1);
+        appendLabel("if" + leftIsTrue);
         //asses e2
         e.e2().accept(this);
         int rightValReg = methodCurrRegIndex-1;
+        //e2 may have branched, so it doesn't necessarily end in the block it started in
+        String rightBlock = currentBlock();
         //jump to end_and
         String endE2 = String.format("\tbr label %%end_and%d\n", endAnd);
-        //do and
-        /* notice that if e1 is false than rightVal could have garbage,
-         * but we don't care because leftVal has false so the and will be false*/
-        String endAndCommand = String.format("end_and%d:\n\t%%_%d = and i1 %%_%d, %%_%d\n", endAnd, methodCurrRegIndex++, leftValReg, rightValReg);
-        LLVMProgram.append(endE2.concat(endAndCommand));
+        //the and is false if we came from e1, otherwise it's e2's value
+        String endAndCommand = String.format("\t%%_%d = phi i1 [0, %%%s], [%%_%d, %%%s]\n",
+                methodCurrRegIndex++, leftBlock, rightValReg, rightBlock);
+        LLVMProgram.append(endE2);
+        appendLabel("end_and" + endAnd);
+        LLVMProgram.append(endAndCommand);
     }
 
     /**
@@ -463,10 +1782,8 @@ public class LLVMVisitor implements Visitor{
      * @param operation one of: add, sub, mul, icmp slt
      */
     private void binaryVisit(BinaryExpr e, String operation){
-        e.e1().accept(this);
-        int leftValueReg = methodCurrRegIndex-1;
-        e.e2().accept(this);
-        int rightValueReg = methodCurrRegIndex-1;
+        int leftValueReg = emitIntValue(e.e1());
+        int rightValueReg = emitIntValue(e.e2());
         LLVMProgram.append(String.format(
                 "\t%%_%d = %s i32 %%_%d, %%_%d\n", methodCurrRegIndex++, operation, leftValueReg, rightValueReg));
     }
@@ -486,128 +1803,253 @@ public class LLVMVisitor implements Visitor{
         binaryVisit(e, "sub");
     }
 
+    /**
+     * Multiplications by a constant are strength reduced: constant operands are folded, and multiplying
+     * by 0, 1, -1, 2^k, 2^k + 1 or 2^k - 1 becomes shifts, adds and subs.
+     * All are exact in 32 bit two's complement, so the result is the same as mul's for every input.
+     */
     @Override
     public void visit(MultExpr e) {
+        boolean e1IsLiteral = LoopAnalysis.isLiteral(e.e1());
+        boolean e2IsLiteral = LoopAnalysis.isLiteral(e.e2());
+        if (e1IsLiteral && e2IsLiteral) {
+            int product = ((IntegerLiteralExpr) e.e1()).num() * ((IntegerLiteralExpr) e.e2()).num();
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = add i32 0, %d\n", methodCurrRegIndex++, product
+            ));
+            return;
+        }
+        // a literal operand has no side effects, so the other operand may be evaluated alone
+        if (e2IsLiteral && multiplyByConstant(e.e1(), ((IntegerLiteralExpr) e.e2()).num())) return;
+        if (e1IsLiteral && multiplyByConstant(e.e2(), ((IntegerLiteralExpr) e.e1()).num())) return;
         binaryVisit(e, "mul");
     }
 
+    /**
+     * Emits x * c without a mul if c has a cheaper form.
+     * @return false, without emitting anything, if mul is the cheapest option
+     */
+    private boolean multiplyByConstant(Expr x, int c) {
+        boolean isPowerOfTwo = Integer.bitCount(c) == 1; // as an unsigned 32 bit number, so includes MIN_VALUE
+        boolean isPowerOfTwoPlusOne = c > 2 && Integer.bitCount(c - 1) == 1;
+        boolean isPowerOfTwoMinusOne = c > 2 && Integer.bitCount(c + 1) == 1;
+        if (c != 0 && c != -1 && !isPowerOfTwo && !isPowerOfTwoPlusOne && !isPowerOfTwoMinusOne) return false;
+
+        int xReg = emitIntValue(x);
+        if (c == 0) {
+            LLVMProgram.append(String.format("\t%%_%d = add i32 0, 0\n", methodCurrRegIndex++));
+        } else if (c == 1) {
+            // the result must be the last assigned register, which a hoisted length isn't
+            if (xReg != methodCurrRegIndex - 1) {
+                LLVMProgram.append(String.format("\t%%_%d = add i32 %%_%d, 0\n", methodCurrRegIndex++, xReg));
+            }
+        } else if (c == -1) {
+            LLVMProgram.append(String.format("\t%%_%d = sub i32 0, %%_%d\n", methodCurrRegIndex++, xReg));
+        } else if (isPowerOfTwo) {
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = shl i32 %%_%d, %d\n", methodCurrRegIndex++, xReg, Integer.numberOfTrailingZeros(c)));
+        } else {
+            int shift = isPowerOfTwoPlusOne ? Integer.numberOfTrailingZeros(c - 1) : Integer.numberOfTrailingZeros(c + 1);
+            LLVMProgram.append(String.format("\t%%_%d = shl i32 %%_%d, %d\n", methodCurrRegIndex++, xReg, shift));
+            LLVMProgram.append(String.format("\t%%_%d = %s i32 %%_%d, %%_%d\n",
+                    methodCurrRegIndex, isPowerOfTwoPlusOne ? "add" : "sub", methodCurrRegIndex - 1, xReg));
+            methodCurrRegIndex++;
+        }
+        return true;
+    }
+
     @Override
     public void visit(ArrayAccessExpr e) {
-        //get pointer to array
-        e.arrayExpr().accept(this);
-        //now register number methodCurrRegIndex - 1 is the i8* pointer to the pointer to the array
-
-        int arrayPointerReg = methodCurrRegIndex - 1;
+        HoistedArray hoisted = hoistedArray(e.arrayExpr());
+        int arrayPointerReg;
+        if (hoisted != null) {
+            arrayPointerReg = hoisted.ptrReg;
+        } else {
+            //get pointer to array
+            e.arrayExpr().accept(this);
+            //now register number methodCurrRegIndex - 1 is the pointer to the array
+            arrayPointerReg = methodCurrRegIndex - 1;
+        }
 
         //check if index is not out of bounds
-        e.indexExpr().accept(this);
-        int indexReg = methodCurrRegIndex - 1;
-        validateIndexArray(indexReg, arrayPointerReg);
+        int gcTempMark = gcTempDepth;
+        if (hoisted == null) {
+            rootTemp(ARRAY_TYPE + "*", "%_" + arrayPointerReg);
+        }
+        int indexReg = emitIntValue(e.indexExpr());
+        gcTempDepth = gcTempMark;
+        validateIndexArray(indexReg, arrayPointerReg, hoisted == null ? -1 : hoisted.lengthReg);
 
-        LLVMProgram.append(String.format(
-                "arr_alloc%d:\n", methodCurrLabelIndex++ //this is not an allocation but let's keep the index validation intact
-        ));
+        appendLabel("arr_alloc" + methodCurrLabelIndex++); //this is not an allocation but let's keep the index validation intact
 
         //put value into register
-        String updateIndex = String.format("\t%%_%d = add i32 %%_%d, 1\n", methodCurrRegIndex++, indexReg);
-        StringBuilder getElem = new StringBuilder(String.format(
-                "\t%%_%d = getelementptr i32, i32* %%_%d, i32 %%_%d\n", methodCurrRegIndex, arrayPointerReg, methodCurrRegIndex-1));
-        methodCurrRegIndex++;
-        getElem.append(String.format("\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex, methodCurrRegIndex-1));
-        methodCurrRegIndex++;
-
-        LLVMProgram.append(updateIndex).append(getElem.toString());
+        int elementPtrReg = emitElementPtr(arrayPointerReg, hoisted, indexReg);
+        LLVMProgram.append(String.format("\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex++, elementPtrReg));
     }
 
 
     @Override
     public void visit(ArrayLengthExpr e) {
-        //get pointer to array
-        e.arrayExpr().accept(this);
-        int arrayPointerReg = methodCurrRegIndex - 1;
+        HoistedArray hoisted = hoistedArray(e.arrayExpr());
+        int arrayPointerReg;
+        if (hoisted != null) {
+            arrayPointerReg = hoisted.ptrReg;
+        } else {
+            //get pointer to array
+            e.arrayExpr().accept(this);
+            arrayPointerReg = methodCurrRegIndex - 1;
+        }
 
-        LLVMProgram.append(String.format("\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex++, arrayPointerReg));
+        int lengthPtrReg = emitLengthPtr(arrayPointerReg);
+        LLVMProgram.append(String.format("\t%%_%d = load i32, i32* %%_%d\n", methodCurrRegIndex++, lengthPtrReg));
     }
 
     @Override
     public void visit(MethodCallExpr e) {
-        boolean thisExpr = false;
-        if (!e.ownerExpr().getClass().getName().equals("ast.ThisExpr")) {
-            e.ownerExpr().accept(this);
-        } else {
-            thisExpr = true;
+        String owner = emitValue(e.ownerExpr());
+        String invokerClass = e.callSite().receiverClass();
+        int methodIndex = e.callSite().slot();
+        MethodDecl methodDecl = e.callSite().target();
+        List<FormalArg> formals = methodDecl.formals();
+        //put actuals into registers, keeping the objects alive while the following ones are evaluated
+        int gcTempMark = gcTempDepth;
+        if (!e.actuals().isEmpty()) {
+            rootTemp("i8*", owner);
         }
-        //now reg number methodCurrRegIndex - 1 is holding the i8* to the object
-        boolean isNew = e.ownerExpr().getClass().getName().equals("ast.NewObjectExpr") || e.ownerExpr().getClass().getName().equals("ast.NewIntArrayExpr");
-        int ownerReg = isNew ? lastCallocReg : methodCurrRegIndex-1;
-        //Now access the vtable
-        if (!thisExpr) {
-            LLVMProgram.append(String.format("\t%%_%d = bitcast i8* %%_%d to i8***\n", methodCurrRegIndex++, ownerReg));
-        } else {
-            LLVMProgram.append(String.format("\t%%_%d = bitcast i8* %%this to i8***\n", methodCurrRegIndex++));
+        StringBuilder args = new StringBuilder("i8* " + owner);
+        for(int i = 0; i < e.actuals().size(); i++){
+            String actual = emitValue(e.actuals().get(i));
+            String actualType = getLLVMType(formals.get(i).type());
+            if (i < e.actuals().size() - 1 && isPointer(actualType)) {
+                rootTemp(actualType, actual);
+            }
+            args.append(String.format(", %s %s", actualType, actual));
+        }
+        //the callee's frame keeps them alive during the call
+        gcTempDepth = gcTempMark;
+        //find out return type
+        String returnType = getLLVMType(methodDecl.returnType());
+        String signature = signatures.computeIfAbsent(methodDecl, this::functionPointerType);
+
+        //a new object's class is known, otherwise the owner may be of any live class inheriting the static one
+        List<String> classes = e.ownerExpr().kind() == AstKind.NEW_OBJECT_EXPR
+                ? Collections.singletonList(invokerClass)
+                : rta.liveClasses(cha.possibleClasses(invokerClass));
+        Map<String, List<String>> targets = cha.targets(classes, methodIndex);
+        if (targets.size() == 1) {
+            String target = targets.keySet().iterator().next();
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = call %s @%s(%s)\n", methodCurrRegIndex++, returnType, target, args));
+            return;
         }
+
+        //Now access the vtable
+        String ownerType = getStructType(invokerClass);
+        LLVMProgram.append(String.format("\t%%_%d = bitcast i8* %s to %s*\n", methodCurrRegIndex++, owner, ownerType));
+        LLVMProgram.append(String.format("\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 0\n",
+                methodCurrRegIndex, ownerType, ownerType, methodCurrRegIndex - 1));
+        methodCurrRegIndex++;
         int vtableReg = methodCurrRegIndex;
         LLVMProgram.append(String.format("\t%%_%d = load i8**, i8*** %%_%d\n", vtableReg, methodCurrRegIndex - 1));
         methodCurrRegIndex++;
-        int methodIndex = getMethodIndexInVtable(e);
+        Map<String, List<String>> guarded = guardedTargets(targets);
+        if (guarded.isEmpty()) {
+            emitIndirectCall(vtableReg, methodIndex, signature, returnType, args.toString());
+        } else {
+            emitGuardedCall(vtableReg, methodIndex, guarded, signature, returnType, args.toString());
+        }
+    }
+
+    /**
+     * The LLVM type of a pointer to the method's function, which a vtable entry is cast to before it's called
+     */
+    private String functionPointerType(MethodDecl methodDecl) {
+        StringBuilder signature = new StringBuilder(getLLVMType(methodDecl.returnType()) + " (i8*");
+        for(FormalArg formal : methodDecl.formals()){
+            signature.append(", ").append(getLLVMType(formal.type()));
+        }
+        return signature.append(")*").toString();
+    }
+
+    /**
+     * @return the targets a call site with the given possible targets should call directly, with the classes
+     * using them: none if there are too many targets, otherwise those whose classes fit in MAX_GUARDED_CLASSES
+     * compares
+     */
+    private Map<String, List<String>> guardedTargets(Map<String, List<String>> targets) {
+        Map<String, List<String>> res = new LinkedHashMap<>();
+        if (targets.size() > MAX_GUARDED_TARGETS) return res;
+        int compares = 0;
+        for (Map.Entry<String, List<String>> target : targets.entrySet()) {
+            if (compares + target.getValue().size() > MAX_GUARDED_CLASSES) continue;
+            compares += target.getValue().size();
+            res.put(target.getKey(), target.getValue());
+        }
+        return res;
+    }
+
+    /**
+     * Loads the method at methodIndex from the vtable and calls it
+     * @return the register holding the returned value
+     */
+    private int emitIndirectCall(int vtableReg, int methodIndex, String signature, String returnType, String args) {
         LLVMProgram.append(String.format(
                 "\t%%_%d = getelementptr i8*, i8** %%_%d, i32 %d\n", methodCurrRegIndex++, vtableReg, methodIndex));
         int methodReg = methodCurrRegIndex;
         LLVMProgram.append(String.format(
                 "\t%%_%d = load i8*, i8** %%_%d\n", methodCurrRegIndex, methodCurrRegIndex - 1));
         methodCurrRegIndex++;
-        //put actuals into registers
-        int numberOfActuals = e.actuals().size();
-        List<String> actualsRegs = new ArrayList<>(numberOfActuals);
-        for(int i = 0; i < e.actuals().size(); i++){
-            Expr actual = e.actuals().get(i);
-            if (actual.getClass().getName().equals("ast.ThisExpr")) {
-                actualsRegs.add(i, "%this");
-            } else {
-                actual.accept(this);
-                actualsRegs.add(i, String.format("%%_%d", methodCurrRegIndex-1));
-            }
-        }
-        //find out return type
-        String invokerClass = STLookup.findInvokingClassNameForMethodCall(e, forest, programSymbolTable);
-        MethodDecl methodDecl = (MethodDecl) vtables.get(invokerClass).get(methodIndex).declaration();
-        String returnType = getLLVMType(methodDecl.returnType());
         //bitcast to function signature
-        StringBuilder castToSignature = new StringBuilder();
-        castToSignature.append(String.format("\t%%_%d = bitcast i8* %%_%d to %s (i8*", methodCurrRegIndex++, methodReg, returnType));
-        List<FormalArg> formals = methodDecl.formals();
-        for(FormalArg formal : formals){
-            castToSignature.append(String.format(", %s", getLLVMType(formal.type())));
-        }
-        castToSignature.append(")*\n");
-        LLVMProgram.append(castToSignature.toString());
+        LLVMProgram.append(String.format(
+                "\t%%_%d = bitcast i8* %%_%d to %s\n", methodCurrRegIndex++, methodReg, signature));
         //call function
         int methodPointer = methodCurrRegIndex - 1;
-        StringBuilder callCommand;
-        if(thisExpr){
-            callCommand = new StringBuilder(String.format(
-                    "\t%%_%d = call %s %%_%d(i8* %%this", methodCurrRegIndex++, returnType, methodPointer));
-        }
-        else{
-            callCommand = new StringBuilder(String.format(
-                    "\t%%_%d = call %s %%_%d(i8* %%_%d", methodCurrRegIndex++, returnType, methodPointer, ownerReg));
-        }
-        for(int i = 0; i < actualsRegs.size(); i++){
-            callCommand.append(String.format(", %s %s", getLLVMType(formals.get(i).type()), actualsRegs.get(i)));
-        }
-        callCommand.append(")\n");
-        LLVMProgram.append(callCommand);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = call %s %%_%d(%s)\n", methodCurrRegIndex++, returnType, methodPointer, args));
+        return methodCurrRegIndex - 1;
     }
 
-    private int getMethodIndexInVtable(MethodCallExpr e){
-        String classDeclName = STLookup.findInvokingClassNameForMethodCall(e, forest, programSymbolTable);
-        List<STSymbol> vt = vtables.get(classDeclName);
-        for(int i = 0; i < vt.size(); i++){
-            if(vt.get(i).name().equals(e.methodId())) return i;
+    /**
+     * Compares the owner's vtable against the vtables of the classes using each guarded target, and calls the
+     * target of the matching class directly, so that it can be inlined. Owners of any other class go through
+     * the vtable.
+     */
+    private void emitGuardedCall(int vtableReg, int methodIndex, Map<String, List<String>> guarded,
+                                 String signature, String returnType, String args) {
+        List<String> guardedTargets = new ArrayList<>();
+        List<Integer> callLabels = new ArrayList<>();
+        for (Map.Entry<String, List<String>> target : guarded.entrySet()) {
+            int callLabel = methodCurrLabelIndex++;
+            for (String className : target.getValue()) {
+                int vtableSize = layouts.get(className).vtableSize();
+                LLVMProgram.append(String.format(
+                        "\t%%_%d = getelementptr [%d x i8*], [%d x i8*]* @.%s_vtable, i32 0, i32 0\n",
+                        methodCurrRegIndex++, vtableSize, vtableSize, className));
+                LLVMProgram.append(String.format(
+                        "\t%%_%d = icmp eq i8** %%_%d, %%_%d\n", methodCurrRegIndex, vtableReg, methodCurrRegIndex - 1));
+                int next = methodCurrLabelIndex++;
+                LLVMProgram.append(String.format(
+                        "\tbr i1 %%_%d, label %%devirt_call%d, label %%devirt_next%d\n",
+                        methodCurrRegIndex++, callLabel, next));
+                appendLabel("devirt_next" + next);
+            }
+            guardedTargets.add(target.getKey());
+            callLabels.add(callLabel);
         }
-        //shouldn't reach this part ever
-        System.out.println("something went wrong in getting method index");
-        return -1;
+        String fallbackBlock = currentBlock();
+        int endLabel = methodCurrLabelIndex++;
+        StringBuilder phi = new StringBuilder(String.format(
+                "[%%_%d, %%%s]", emitIndirectCall(vtableReg, methodIndex, signature, returnType, args), fallbackBlock));
+        LLVMProgram.append(String.format("\tbr label %%devirt_end%d\n", endLabel));
+        for (int i = 0; i < guardedTargets.size(); i++) {
+            appendLabel("devirt_call" + callLabels.get(i));
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = call %s @%s(%s)\n", methodCurrRegIndex, returnType, guardedTargets.get(i), args));
+            LLVMProgram.append(String.format("\tbr label %%devirt_end%d\n", endLabel));
+            phi.append(String.format(", [%%_%d, %%devirt_call%d]", methodCurrRegIndex++, callLabels.get(i)));
+        }
+        appendLabel("devirt_end" + endLabel);
+        LLVMProgram.append(String.format("\t%%_%d = phi %s %s\n", methodCurrRegIndex++, returnType, phi));
     }
 
     @Override
@@ -634,36 +2076,26 @@ public class LLVMVisitor implements Visitor{
     @Override
     public void visit(IdentifierExpr e) {
         String id = e.id();
-        SymbolTable enclosingST = STLookup.findDeclTable(id, forest, e.enclosingScope(), programSymbolTable);
-        VariableIntroduction idIntro = (VariableIntroduction) enclosingST.getSymbol(id, false).declaration();
+        STSymbol binding = e.binding();
+        VariableIntroduction idIntro = (VariableIntroduction) binding.declaration();
         String idLLType = getLLVMType(idIntro);
         /*
           Case 1: id is a local variable in the method
          */
-        if (e.enclosingScope().contains(id, false)) {
+        if (binding.kind() == STSymbol.SymbolKind.VAR) {
             LLVMProgram.append(String.format(
                     "\t%%_%d = load %s, %s* %%%s\n", methodCurrRegIndex++, idLLType, idLLType, id
             ));
             return;
         }
-        //if we've reached this code than e is defined as a field of enclosingST
-        String enclosingClassName = enclosingST.scopeName();
-        List<STSymbol> classInstanceShape = instanceTemplates.get(enclosingClassName);
+        //if we've reached this code than e is defined as a field of the binding's class
+        String enclosingClassName = binding.className();
+        ClassLayout classLayout = layouts.get(enclosingClassName);
         /*
           Case 2: id is a field of %this
          */
-        if (STLookup.classInstanceHasField(classInstanceShape, id)) {
-            int offset = calcFieldOffset(classInstanceShape, id);
-            int idPtrReg = methodCurrRegIndex;
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = getelementptr i8, i8* %%this, i32 %d\n", idPtrReg, offset
-            ));
-            methodCurrRegIndex++;
-            int idPtrRegPostCast = methodCurrRegIndex;
-            LLVMProgram.append(String.format(
-                    "\t%%_%d = bitcast i8* %%_%d to %s*\n", idPtrRegPostCast, idPtrReg, idLLType
-            ));
-            methodCurrRegIndex++;
+        if (classLayout.hasField(id)) {
+            int idPtrRegPostCast = emitFieldPtr(enclosingClassName, id);
             LLVMProgram.append(String.format(
                     "\t%%_%d = load %s, %s* %%_%d\n", methodCurrRegIndex++, idLLType, idLLType, idPtrRegPostCast
             ));
@@ -675,53 +2107,117 @@ public class LLVMVisitor implements Visitor{
 
     }
 
+    /**
+     * Emits the inline fast path of allocation from the arena: bumps the pointer to the next free byte of the
+     * current chunk, calling arena_refill only if the chunk doesn't have room. The chunks are allocated zeroed
+     * and never reused, so the memory needs no clearing. Sizes are rounded up to 8 bytes to keep every
+     * allocation aligned for the pointers it may hold.
+     * @param sizeReg register holding the size in bytes, as an i64
+     * @return register holding the allocated i8* address
+     */
+    private int emitArenaAllocation(int sizeReg) {
+        int labelIndex = methodCurrLabelIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = add i64 %%_%d, 7\n", methodCurrRegIndex++, sizeReg));
+        int alignedSizeReg = methodCurrRegIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = and i64 %%_%d, -8\n", alignedSizeReg, alignedSizeReg - 1));
+        int freeReg = methodCurrRegIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = load i8*, i8** @_arena_next\n", freeReg));
+        int nextReg = methodCurrRegIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = getelementptr i8, i8* %%_%d, i64 %%_%d\n", nextReg, freeReg, alignedSizeReg));
+        LLVMProgram.append(String.format("\t%%_%d = load i8*, i8** @_arena_end\n", methodCurrRegIndex++));
+        LLVMProgram.append(String.format("\t%%_%d = icmp ule i8* %%_%d, %%_%d\n", methodCurrRegIndex, nextReg, methodCurrRegIndex - 1));
+        LLVMProgram.append(String.format(
+                "\tbr i1 %%_%d, label %%alloc_fast%d, label %%alloc_slow%d, !prof !0\n", methodCurrRegIndex++, labelIndex, labelIndex
+        ));
+        appendLabel("alloc_fast" + labelIndex);
+        LLVMProgram.append(String.format("\tstore i8* %%_%d, i8** @_arena_next\n", nextReg));
+        LLVMProgram.append(String.format("\tbr label %%alloc_end%d\n", labelIndex));
+        appendLabel("alloc_slow" + labelIndex);
+        int refilledReg = methodCurrRegIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = call i8* @arena_refill(i64 %%_%d)\n", refilledReg, alignedSizeReg));
+        LLVMProgram.append(String.format("\tbr label %%alloc_end%d\n", labelIndex));
+        appendLabel("alloc_end" + labelIndex);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = phi i8* [%%_%d, %%alloc_fast%d], [%%_%d, %%alloc_slow%d]\n",
+                methodCurrRegIndex, freeReg, labelIndex, refilledReg, labelIndex
+        ));
+        return methodCurrRegIndex++;
+    }
+
+    /**
+     * Emits an allocation of zeroed memory, from the arena or with --gc from the collected heap
+     * @param sizeReg register holding the size in bytes, as an i64
+     * @param gcMap the i32* operand pointing to the offsets of the pointers the object holds
+     * @return register holding the allocated i8* address
+     */
+    private int emitAllocation(int sizeReg, String gcMap) {
+        if (!options.gc()) return emitArenaAllocation(sizeReg);
+        LLVMProgram.append(String.format(
+                "\t%%_%d = call i8* @gc_alloc(i64 %%_%d, %s)\n", methodCurrRegIndex, sizeReg, gcMap
+        ));
+        return methodCurrRegIndex++;
+    }
+
     @Override
     public void visit(NewIntArrayExpr e) {
         e.lengthExpr().accept(this);
         int arraySizeReg = methodCurrRegIndex-1;
-        //check if size is >= 0, if not throw oob or something
-        String compareSize = String.format("\t%%_%d = icmp slt i32 %%_%d, 0\n", methodCurrRegIndex++, arraySizeReg);
-        String branch = String.format("\tbr i1 %%_%d, label %%alloc_arr%d, label %%alloc_arr%d\n",
-                methodCurrRegIndex - 1, methodCurrLabelIndex, methodCurrLabelIndex + 1);
-        String oob = String.format("alloc_arr%d:\n\tcall void @throw_oob()\n\tbr label %%alloc_arr%d\nalloc_arr%d:\n",
-                methodCurrLabelIndex, methodCurrLabelIndex + 1, methodCurrLabelIndex + 1);
-        methodCurrLabelIndex += 2;
-        //size is good
-        int actualSize = methodCurrRegIndex;
-        String updateSize = String.format("\t%%_%d = add i32 %%_%d, 1\n",methodCurrRegIndex++, arraySizeReg);
-        int lenReg = methodCurrRegIndex - 1;
-        String allocate = String.format("\t%%_%d = call i8* @calloc(i32 4, i32 %%_%d)\n", methodCurrRegIndex++, lenReg);
+        //check if size is >= 0, if not throw oob
+        LLVMProgram.append(String.format("\t%%_%d = icmp sge i32 %%_%d, 0\n", methodCurrRegIndex, arraySizeReg));
+        branchToOobTrapUnless(methodCurrRegIndex++);
+        appendLabel("arr_alloc" + methodCurrLabelIndex++);
+        //size is good, allocate one more int for the length. In 64 bits, so that no size overflows
+        LLVMProgram.append(String.format("\t%%_%d = zext i32 %%_%d to i64\n", methodCurrRegIndex++, arraySizeReg));
+        LLVMProgram.append(String.format("\t%%_%d = add i64 %%_%d, 1\n", methodCurrRegIndex, methodCurrRegIndex - 1));
+        methodCurrRegIndex++;
+        LLVMProgram.append(String.format("\t%%_%d = mul i64 %%_%d, 4\n", methodCurrRegIndex, methodCurrRegIndex - 1));
+        methodCurrRegIndex++;
+        int bytesReg = methodCurrRegIndex - 1;
+        if (options.allocStats()) {
+            //arrays are counted by the number of bits in their length
+            LLVMProgram.append(String.format("\t%%_%d = call i32 @llvm.ctlz.i32(i32 %%_%d, i1 false)\n", methodCurrRegIndex++, arraySizeReg));
+            LLVMProgram.append(String.format("\t%%_%d = sub i32 32, %%_%d\n", methodCurrRegIndex, methodCurrRegIndex - 1));
+            methodCurrRegIndex++;
+            int bitsReg = methodCurrRegIndex - 1;
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = getelementptr inbounds [32 x i64], [32 x i64]* @_array_allocs, i32 0, i32 %%_%d\n", methodCurrRegIndex++, bitsReg));
+            LLVMProgram.append(String.format(
+                    "\t%%_%d = getelementptr inbounds [32 x i64], [32 x i64]* @_array_alloc_bytes, i32 0, i32 %%_%d\n", methodCurrRegIndex++, bitsReg));
+            emitAllocCount("%_" + (methodCurrRegIndex - 2), "%_" + (methodCurrRegIndex - 1), bytesReg);
+        }
+        int allocatedReg = emitAllocation(bytesReg, "i32* null");
         int arrayReg = methodCurrRegIndex;
         lastCallocReg = methodCurrRegIndex;
-        String bitcast = String.format("\t%%_%d = bitcast i8* %%_%d to i32*\n", methodCurrRegIndex, methodCurrRegIndex - 1);
-        methodCurrRegIndex++;
-        String inputSize = String.format("\tstore i32 %%_%d, i32* %%_%d\n", actualSize, arrayReg);
-        LLVMProgram.append(compareSize)
-                .append(branch)
-                .append(oob)
-                .append(updateSize)
-                .append(allocate)
-                .append(bitcast)
-                .append(inputSize);
+        LLVMProgram.append(String.format("\t%%_%d = bitcast i8* %%_%d to %s*\n", methodCurrRegIndex++, allocatedReg, ARRAY_TYPE));
+        int lengthPtrReg = emitLengthPtr(arrayReg);
+        LLVMProgram.append(String.format("\tstore i32 %%_%d, i32* %%_%d\n", arraySizeReg, lengthPtrReg));
     }
 
     @Override
     public void visit(NewObjectExpr e) {
-        int allocationSize = 8;
-        for(STSymbol symbol : instanceTemplates.get(e.classId())){
-            allocationSize += getSizeInBytes(symbol);
+        String structType = getStructType(e.classId());
+        //the size of the struct, including its padding, is the offset of the struct after it
+        int sizePtrReg = methodCurrRegIndex++;
+        String sizeOf = String.format("\t%%_%d = getelementptr %s, %s* null, i32 1\n", sizePtrReg, structType, structType);
+        int allocationSizeReg = methodCurrRegIndex++;
+        String toInt = String.format("\t%%_%d = ptrtoint %s* %%_%d to i64\n", allocationSizeReg, structType, sizePtrReg);
+        LLVMProgram.append(sizeOf).append(toInt);
+        if (options.allocStats()) {
+            emitAllocCount("@." + e.classId() + "_allocs", "@." + e.classId() + "_alloc_bytes", allocationSizeReg);
         }
-        int objectAddressReg = methodCurrRegIndex++;
+        int objectAddressReg = emitAllocation(allocationSizeReg, getGCMap(e.classId()));
         lastCallocReg = objectAddressReg;
-        String allocate = String.format("\t%%_%d = call i8* @calloc(i32 1, i32 %d)\n", objectAddressReg, allocationSize);
+        int objectReg = methodCurrRegIndex++;
+        String bitcast = String.format("\t%%_%d = bitcast i8* %%_%d to %s*\n", objectReg, objectAddressReg, structType);
         int castedI8Pointer = methodCurrRegIndex++;
-        String bitcast = String.format("\t%%_%d = bitcast i8* %%_%d to i8***\n", castedI8Pointer, objectAddressReg);
+        String getVtablePtr = String.format("\t%%_%d = getelementptr inbounds %s, %s* %%_%d, i32 0, i32 0\n",
+                castedI8Pointer, structType, structType, objectReg);
         int vtableAddress = methodCurrRegIndex++;
-        int vtableSize = vtables.get(e.classId()).size();
+        int vtableSize = layouts.get(e.classId()).vtableSize();
         String getVtable = String.format("\t%%_%d = getelementptr [%d x i8*], [%d x i8*]* @.%s_vtable, i32 0, i32 0\n",
                 vtableAddress, vtableSize, vtableSize, e.classId());
         String storeVtable = String.format("\tstore i8** %%_%d, i8*** %%_%d\n", vtableAddress, castedI8Pointer);
-        LLVMProgram.append(allocate).append(bitcast).append(getVtable).append(storeVtable);
+        LLVMProgram.append(bitcast).append(getVtablePtr).append(getVtable).append(storeVtable);
         //memset to 0?
     }
 
@@ -0,0 +1,420 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Collects the facts about a single while loop that the code generator needs in order to
+ * simplify it: which variables the loop (condition and body) writes, whether it may call methods,
+ * which local variables are induction variables, and which int[] variables keep the same value
+ * across all iterations.
+ */
+public class LoopAnalysis implements Visitor {
+    private final WhileStatement loop;
+    /**
+     * ST of the method the loop is in. null for a loop in the main class, which has no variables.
+     */
+    private final SymbolTable methodScope;
+    private final Map<String, Integer> assignmentCounts;
+    private final Map<String, Integer> inductionSteps;
+    private final Set<String> accessedArrays;
+    private boolean hasMethodCalls;
+    /**
+     * Number of AST nodes in the condition and the body
+     */
+    private int size;
+    /**
+     * Induction variable and bound of the condition of a counted loop, see findCounter
+     */
+    private String counter;
+    private Expr bound;
+
+    public LoopAnalysis(WhileStatement loop) {
+        this.loop = loop;
+        this.methodScope = loop.enclosingScope();
+        this.assignmentCounts = new HashMap<>();
+        this.inductionSteps = new HashMap<>();
+        this.accessedArrays = new LinkedHashSet<>();
+        this.hasMethodCalls = false;
+        loop.cond().accept(this);
+        loop.body().accept(this);
+        findInductionVariables();
+        findCounter();
+    }
+
+    public WhileStatement loop() {
+        return loop;
+    }
+
+    /**
+     * The statements the body executes in order on every iteration - the statements of the
+     * body block, or the body itself if it is not a block.
+     */
+    public List<Statement> topLevelStatements() {
+        if (loop.body().kind() == AstKind.BLOCK_STATEMENT) {
+            return ((BlockStatement) loop.body()).statements();
+        }
+        return Collections.singletonList(loop.body());
+    }
+
+    public boolean isLocal(String varName) {
+        return methodScope != null && methodScope.contains(varName, false);
+    }
+
+    public boolean hasMethodCalls() {
+        return hasMethodCalls;
+    }
+
+    public boolean isAssigned(String varName) {
+        return assignmentCounts.containsKey(varName);
+    }
+
+    /**
+     * A variable is invariant if nothing in the loop can change it: it's not assigned by the loop,
+     * and if it's a field, the loop doesn't call any method that might assign it.
+     */
+    public boolean isInvariant(String varName) {
+        if (methodScope == null || isAssigned(varName)) return false;
+        return isLocal(varName) || !hasMethodCalls;
+    }
+
+    public boolean isInductionVariable(String varName) {
+        return inductionSteps.containsKey(varName);
+    }
+
+    /**
+     * @return the constant the induction variable is stepped by on each iteration, or null if the
+     * variable is not an induction variable of this loop
+     */
+    public Integer inductionStep(String varName) {
+        return inductionSteps.get(varName);
+    }
+
+    /**
+     * Names of the int[] variables indexed or measured by the loop which are also loop invariant,
+     * in order of first appearance.
+     */
+    public List<String> invariantArrays() {
+        List<String> res = new ArrayList<>();
+        for (String name : accessedArrays) {
+            if (isInvariant(name)) res.add(name);
+        }
+        return res;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isCounted() {
+        return counter != null;
+    }
+
+    /**
+     * @return the induction variable the condition of a counted loop compares, or null if the loop is not counted
+     */
+    public String counter() {
+        return counter;
+    }
+
+    /**
+     * @return the invariant side of the condition of a counted loop, or null if the loop is not counted
+     */
+    public Expr bound() {
+        return bound;
+    }
+
+    /**
+     * @return true if the condition of a counted loop is counter < bound, false if it is bound < counter
+     */
+    public boolean countsUp() {
+        return inductionStep(counter) > 0;
+    }
+
+    /**
+     * Number of iterations a counted loop with a literal bound runs if the counter starts at initialValue.
+     * @return the count, or -1 if it's unknown or larger than limit
+     */
+    public int tripCount(int initialValue, int limit) {
+        if (!isCounted() || !isLiteral(bound)) return -1;
+        int b = ((IntegerLiteralExpr) bound).num();
+        int step = inductionStep(counter);
+        int i = initialValue;
+        int count = 0;
+        while (countsUp() ? i < b : b < i) {
+            if (count == limit) return -1;
+            count++;
+            i += step; // wraps around like the compiled loop would
+        }
+        return count;
+    }
+
+    /**
+     * A loop is counted if its condition is i < bound where i is an induction variable stepped up,
+     * or bound < i where i is stepped down, and bound is an int literal, an invariant variable or the
+     * length of an invariant array. Then the bound is the same on every iteration, and the condition
+     * has no side effects.
+     */
+    private void findCounter() {
+        if (loop.cond().kind() != AstKind.LT_EXPR) return;
+        LtExpr lt = (LtExpr) loop.cond();
+        if (isSteppedBy(lt.e1(), 1) && isInvariantBound(lt.e2())) {
+            counter = ((IdentifierExpr) lt.e1()).id();
+            bound = lt.e2();
+        } else if (isSteppedBy(lt.e2(), -1) && isInvariantBound(lt.e1())) {
+            counter = ((IdentifierExpr) lt.e2()).id();
+            bound = lt.e1();
+        }
+    }
+
+    /**
+     * @return true if e is an induction variable whose step has the given sign
+     */
+    private boolean isSteppedBy(Expr e, int sign) {
+        if (e.kind() != AstKind.IDENTIFIER_EXPR) return false;
+        Integer step = inductionStep(((IdentifierExpr) e).id());
+        return step != null && Integer.signum(step) == sign;
+    }
+
+    private boolean isInvariantBound(Expr e) {
+        AstKind kind = e.kind();
+        if (kind == AstKind.INTEGER_LITERAL_EXPR) return true;
+        if (kind == AstKind.IDENTIFIER_EXPR) return isInvariant(((IdentifierExpr) e).id());
+        if (kind == AstKind.ARRAY_LENGTH_EXPR) {
+            Expr arrayExpr = ((ArrayLengthExpr) e).arrayExpr();
+            return arrayExpr.kind() == AstKind.IDENTIFIER_EXPR
+                    && isInvariant(((IdentifierExpr) arrayExpr).id());
+        }
+        return false;
+    }
+
+    /**
+     * An induction variable is a local assigned exactly once in the loop, by a top level statement
+     * of the body of the form i = i + c, i = c + i or i = i - c.
+     */
+    private void findInductionVariables() {
+        if (methodScope == null) return;
+        for (Statement statement : topLevelStatements()) {
+            if (statement.kind() != AstKind.ASSIGN_STATEMENT) continue;
+            AssignStatement assign = (AssignStatement) statement;
+            String name = assign.lv();
+            if (!isLocal(name) || assignmentCounts.get(name) != 1) continue;
+            Integer step = constantStep(name, assign.rv());
+            if (step != null) inductionSteps.put(name, step);
+        }
+    }
+
+    private Integer constantStep(String varName, Expr rv) {
+        AstKind rvKind = rv.kind();
+        if (rvKind != AstKind.ADD_EXPR && rvKind != AstKind.SUBTRACT_EXPR) return null;
+        BinaryExpr be = (BinaryExpr) rv;
+        if (isVariable(be.e1(), varName) && isLiteral(be.e2())) {
+            int c = ((IntegerLiteralExpr) be.e2()).num();
+            return rvKind == AstKind.ADD_EXPR ? c : -c;
+        }
+        if (rvKind == AstKind.ADD_EXPR && isLiteral(be.e1()) && isVariable(be.e2(), varName)) {
+            return ((IntegerLiteralExpr) be.e1()).num();
+        }
+        return null;
+    }
+
+    public static boolean isLiteral(Expr e) {
+        return e.kind() == AstKind.INTEGER_LITERAL_EXPR;
+    }
+
+    public static boolean isVariable(Expr e, String varName) {
+        return e.kind() == AstKind.IDENTIFIER_EXPR && ((IdentifierExpr) e).id().equals(varName);
+    }
+
+    private void countAssignment(String varName) {
+        assignmentCounts.merge(varName, 1, Integer::sum);
+    }
+
+    private void noteArray(Expr arrayExpr) {
+        if (arrayExpr.kind() == AstKind.IDENTIFIER_EXPR) {
+            accessedArrays.add(((IdentifierExpr) arrayExpr).id());
+        }
+    }
+
+    @Override
+    public void visit(Program program) {
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        size++;
+        for (Statement statement : blockStatement.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        size++;
+        ifStatement.cond().accept(this);
+        ifStatement.thencase().accept(this);
+        ifStatement.elsecase().accept(this);
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        size++;
+        whileStatement.cond().accept(this);
+        whileStatement.body().accept(this);
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        size++;
+        sysoutStatement.arg().accept(this);
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        size++;
+        countAssignment(assignStatement.lv());
+        assignStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        size++;
+        // writes an element, the array variable itself keeps its value
+        accessedArrays.add(assignArrayStatement.lv());
+        assignArrayStatement.index().accept(this);
+        assignArrayStatement.rv().accept(this);
+    }
+
+    private void visit(BinaryExpr e) {
+        size++;
+        e.e1().accept(this);
+        e.e2().accept(this);
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        size++;
+        noteArray(e.arrayExpr());
+        e.arrayExpr().accept(this);
+        e.indexExpr().accept(this);
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        size++;
+        noteArray(e.arrayExpr());
+        e.arrayExpr().accept(this);
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        size++;
+        hasMethodCalls = true;
+        e.ownerExpr().accept(this);
+        for (Expr actual : e.actuals()) {
+            actual.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        size++;
+        e.lengthExpr().accept(this);
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+        size++;
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        size++;
+        e.e().accept(this);
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+    }
+
+    @Override
+    public void visit(RefType t) {
+    }
+}
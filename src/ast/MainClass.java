@@ -28,6 +28,11 @@ public class MainClass extends AstNode {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.MAIN_CLASS;
+    }
+
     public String name() {
         return name;
     }
@@ -15,6 +15,16 @@ public class MethodCallExpr extends Expr {
     @XmlElement(name = "actual")
     private List<ExprWrapper> actuals;
 
+    /**
+     * What the call resolves to, set by BindingVisitor
+     */
+    private CallSite callSite;
+
+    /**
+     * ID of the called method's name in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public MethodCallExpr() {
     }
@@ -30,6 +40,11 @@ public class MethodCallExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.METHOD_CALL_EXPR;
+    }
+
     public Expr ownerExpr() {
         return ownerExpr.e;
     }
@@ -42,7 +57,23 @@ public class MethodCallExpr extends Expr {
         this.methodId = methodId;
     }
 
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
     public List<Expr> actuals() {
         return actuals.stream().map(e -> e.e).collect(Collectors.toList());
     }
+
+    public CallSite callSite() {
+        return callSite;
+    }
+
+    public void setCallSite(CallSite callSite) {
+        this.callSite = callSite;
+    }
 }
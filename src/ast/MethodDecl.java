@@ -33,6 +33,11 @@ public class MethodDecl extends AstNode {
     @XmlElement(required = true)
     private ExprWrapper ret;
 
+    /**
+     * ID of the method's name in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public MethodDecl() {
 
@@ -56,6 +61,11 @@ public class MethodDecl extends AstNode {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.METHOD_DECL;
+    }
+
     public AstType returnType() {
         return returnType.t;
     }
@@ -68,6 +78,14 @@ public class MethodDecl extends AstNode {
         this.name = name;
     }
 
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
+
     public List<FormalArg> formals() {
         return formals;
     }
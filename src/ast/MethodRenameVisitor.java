@@ -16,7 +16,11 @@ public class MethodRenameVisitor implements Visitor {
 
 	private SymbolTable programSymbolTable;
 
-	public MethodRenameVisitor(String oldName, String newName, int lineNumber) {
+	public MethodRenameVisitor(ProgramAnalysis analysis, String oldName, String newName, int lineNumber) {
+		
+		this.forest = analysis.forest();
+		
+		this.programSymbolTable = analysis.programSymbolTable();
 		
 		this.oldName = oldName;
 		
@@ -27,9 +31,6 @@ public class MethodRenameVisitor implements Visitor {
 	
 	@Override
 	public void visit(Program program) {
-		forest = new InheritanceForest(program);
-		programSymbolTable = new SymbolTable(program);
-
 		/* two for loops:
 		 * once to find the method and build containingClasses set
 		 * second time to do the actual renaming
@@ -98,41 +99,13 @@ public class MethodRenameVisitor implements Visitor {
 
 	}
 
-	private void visit(Expr e){
-		String classTypeName = e.getClass().getName();
-		String binars[] = {"ast.AddExpr", "ast.AndExpr", "ast.LtExpr", "ast.MultExpr", "ast.SubtractExpr"};
-		if(Arrays.asList(binars).contains(classTypeName)){
-			((BinaryExpr)e).accept(this);
-			return;
-		}
-		switch(classTypeName){
-			case "ast.ArrayAccessExpr":
-				((ArrayAccessExpr)e).accept(this);
-				return;
-			case "ast.ArrayLengthExpr":
-				((ArrayLengthExpr)e).accept(this);
-				return;
-			case "ast.MethodCallExpr":
-				((MethodCallExpr)e).accept(this);
-				return;
-			case "ast.NotExpr":
-				((NotExpr)e).accept(this);
-				return;
-			case "ast.NewIntArrayExpr":
-				((NewIntArrayExpr)e).accept(this);
-				return;
-
-			default: //????
-		}
-	}
-
 	@Override
 	public void visit(MethodDecl methodDecl) {
 
 		for(Statement statement : methodDecl.body()) {
 			statement.accept(this);
 		}
-		this.visit(methodDecl.ret());
+		methodDecl.ret().accept(this);
 
 	}
 
@@ -234,18 +207,18 @@ public class MethodRenameVisitor implements Visitor {
 	private boolean changeNeeded(Expr e) {
 		String className = "";
 		//switch case
-		switch (e.getClass().getName()) {
-		case "ast.ThisExpr":
+		switch (e.kind()) {
+		case THIS_EXPR:
 			className = e.enclosingScope().getParent().scopeName();
 			break;
-		case "ast.IdentifierExpr":
+		case IDENTIFIER_EXPR:
 			IdentifierExpr idf = (IdentifierExpr)e;
-			String varName = idf.id();
-			SymbolTable tbl = STLookup.findDeclTable(varName, forest, e.enclosingScope(), programSymbolTable);
-			VariableIntroduction decl = (VariableIntroduction) STLookup.getDeclNode(tbl, varName);
+			int varId = idf.nameId();
+			SymbolTable tbl = STLookup.findDeclTable(varId, e.enclosingScope(), programSymbolTable);
+			VariableIntroduction decl = (VariableIntroduction) STLookup.getDeclNode(tbl, varId);
 			className = varDeclToTypeName(decl);
 			break;
-		case "ast.NewObjectExpr":
+		case NEW_OBJECT_EXPR:
 			NewObjectExpr newOb = (NewObjectExpr)e;
 			className = newOb.classId();
 			break;
@@ -259,18 +232,18 @@ public class MethodRenameVisitor implements Visitor {
 	
 	private String varDeclToTypeName(VariableIntroduction decl){
 	
-		switch (decl.type().getClass().getName()){
+		switch (decl.type().kind()){
 		
-			case("ast.BoolAstType"):
+			case BOOL_TYPE:
 				return "boolean";
 			
-			case("ast.IntAstType"):
+			case INT_TYPE:
 				return "int";
 				
-			case("ast.IntArrayAstType"):
+			case INT_ARRAY_TYPE:
 				return "intArray";
 				
-			case("ast.RefType"):
+			case REF_TYPE:
 				return ((RefType)(decl.type())).id();
 			
 			default:
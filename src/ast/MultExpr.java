@@ -14,4 +14,9 @@ public class MultExpr extends BinaryExpr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.MULT_EXPR;
+    }
 }
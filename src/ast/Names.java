@@ -0,0 +1,47 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Interns a program's identifiers: each distinct name gets a dense int ID, in order of first appearance,
+ * and a single canonical String. Each Program owns one - the lexer interns every identifier it reads into the
+ * one it hands to the parsed program, and names read from XML are interned as the symbol tables are built.
+ * The symbol table builder stores on each node the ID of the name it declares or refers to, and symbol tables
+ * are keyed by these IDs, so resolving a node never hashes its name.
+ */
+public class Names {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @return the name's ID, assigning it the next one if it wasn't interned yet
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * @return the name's ID, or -1 if it was never interned - no symbol table has it
+     */
+    public int lookup(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the canonical String of the name, interning it if needed
+     */
+    public String intern(String name) {
+        return names.get(id(name));
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+}
@@ -19,6 +19,11 @@ public class NewIntArrayExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.NEW_INT_ARRAY_EXPR;
+    }
+
     public Expr lengthExpr() {
         return lengthExpr.e;
     }
@@ -6,6 +6,11 @@ public class NewObjectExpr extends Expr {
     @XmlElement(required = true)
     private String classId;
 
+    /**
+     * ID of the class name in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public NewObjectExpr() {
     }
@@ -19,7 +24,20 @@ public class NewObjectExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.NEW_OBJECT_EXPR;
+    }
+
     public String classId() {
         return classId;
     }
+
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
 }
@@ -19,6 +19,11 @@ public class NotExpr extends Expr {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.NOT_EXPR;
+    }
+
     public Expr e() {
         return e.e;
     }
@@ -12,6 +12,11 @@ public class Program extends AstNode {
     @XmlElement(name="classdecl")
     private List<ClassDecl> classdecls;
 
+    /**
+     * The program's identifiers, see Names. Not serialized - a program read from XML starts with none
+     */
+    private Names names;
+
     // for deserialization only!
     public Program() {
         super();
@@ -23,11 +28,21 @@ public class Program extends AstNode {
         this.classdecls = classdecls;
     }
 
+    public Program(MainClass mainclass, List<ClassDecl> classdecls, Names names) {
+        this(mainclass, classdecls);
+        this.names = names;
+    }
+
     @Override
     public void accept(Visitor v) {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.PROGRAM;
+    }
+
     public MainClass mainClass() {
         return mainclass;
     }
@@ -35,4 +50,9 @@ public class Program extends AstNode {
     public List<ClassDecl> classDecls() {
         return classdecls;
     }
+
+    public Names names() {
+        if (names == null) names = new Names();
+        return names;
+    }
 }
@@ -0,0 +1,76 @@
+package ast;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What every phase needs to know about a program: its inheritance forest, its symbol table, and - if both
+ * are legal - the vtables, instance templates and layouts of its classes, with its identifiers and method
+ * calls bound by a BindingVisitor. Built once per program and passed to each phase run on it.
+ * A phase renaming the program's variables or methods makes it stale, a new one must then be built.
+ */
+public class ProgramAnalysis {
+    private final Program program;
+    private final InheritanceForest forest;
+    private final SymbolTable programSymbolTable;
+    private final boolean legal;
+
+    private Map<String, List<STSymbol>> vtables;
+    private Map<String, List<STSymbol>> instanceTemplates;
+    private Map<String, ClassLayout> layouts;
+    private BindingVisitor binder;
+
+    public ProgramAnalysis(Program program) {
+        this.program = program;
+        this.forest = new InheritanceForest(program);
+        this.programSymbolTable = new SymbolTable(program);
+        this.legal = forest.isLegalForest() && programSymbolTable.isTableValid();
+        if (!legal) return;
+
+        List<Map<String, List<STSymbol>>> maps = STLookup.createProgramMaps(programSymbolTable, forest);
+        vtables = maps.get(0);
+        instanceTemplates = maps.get(1);
+        layouts = STLookup.createClassLayouts(maps);
+        binder = new BindingVisitor(programSymbolTable, vtables, layouts);
+        program.accept(binder);
+    }
+
+    public Program program() {
+        return program;
+    }
+
+    public InheritanceForest forest() {
+        return forest;
+    }
+
+    public SymbolTable programSymbolTable() {
+        return programSymbolTable;
+    }
+
+    /**
+     * @return true if the classes form a legal forest and the symbol table is valid. Otherwise the maps below
+     * are null and the program isn't bound
+     */
+    public boolean isLegal() {
+        return legal;
+    }
+
+    public Map<String, List<STSymbol>> vtables() {
+        return vtables;
+    }
+
+    public Map<String, List<STSymbol>> instanceTemplates() {
+        return instanceTemplates;
+    }
+
+    public Map<String, ClassLayout> layouts() {
+        return layouts;
+    }
+
+    /**
+     * The visitor which bound the program, to bind nodes a phase creates
+     */
+    public BindingVisitor binder() {
+        return binder;
+    }
+}
@@ -0,0 +1,409 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Runs a program at compile time. MiniJava programs read no input, so this gives exactly the numbers the
+ * compiled program would print, and whether it would then exit on an out of bounds access.
+ * Evaluation is bounded by fuel: each statement and expression evaluated costs one unit, and allocating an
+ * object or array costs one unit per field or element. The evaluation gives up if the fuel runs out, if
+ * the program prints more than MAX_OUTPUT numbers, if its calls nest deeper than MAX_CALL_DEPTH, or if it
+ * calls a method on a null reference, whose behavior is left to the compiled program.
+ */
+public class ProgramEvaluator implements Visitor {
+    /**
+     * Most numbers an evaluated program may print - the output is emitted as a constant array, which past
+     * this size takes more code than compiling the program
+     */
+    public static final int MAX_OUTPUT = 4096;
+    /**
+     * Deepest nesting of method calls the evaluation follows
+     */
+    public static final int MAX_CALL_DEPTH = 1000;
+    /**
+     * Size of the stack of the thread running the evaluation. Each nested call takes a few frames per level
+     * of nesting of the called method's statements and expressions, so this leaves room for MAX_CALL_DEPTH
+     * calls of methods nested hundreds of levels deep.
+     */
+    private static final long STACK_SIZE = 1L << 28;
+
+    private final InheritanceForest forest;
+    private long fuel;
+    private int callDepth;
+    private final List<Integer> output;
+    private boolean outOfBounds;
+    private boolean finished;
+    /**
+     * An unexpected exception the evaluation thread threw, rethrown by run
+     */
+    private RuntimeException failure;
+
+    /**
+     * Value of the expression evaluated last: Integer, Boolean, Instance, int[] or null
+     */
+    private Object value;
+    /**
+     * Values of the parameters and local variables of the method being evaluated
+     */
+    private Map<String, Object> locals;
+    private Instance thisInstance;
+
+    private static class Instance {
+        final String className;
+        final Map<String, Object> fields;
+
+        Instance(String className) {
+            this.className = className;
+            this.fields = new HashMap<>();
+        }
+    }
+
+    /**
+     * Thrown to stop the program when it accesses an array out of its bounds or allocates one of negative size
+     */
+    private static class OutOfBoundsException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Thrown to abandon the evaluation
+     */
+    private static class GiveUpException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public ProgramEvaluator(InheritanceForest forest, long fuel) {
+        this.forest = forest;
+        this.fuel = fuel;
+        this.callDepth = 0;
+        this.output = new ArrayList<>();
+        this.outOfBounds = false;
+        this.finished = false;
+        this.locals = new HashMap<>();
+    }
+
+    /**
+     * Evaluates the program on a thread of its own, whose stack is sized for MAX_CALL_DEPTH calls
+     * @return true if the program ran to its end (or to an out of bounds exit) within the fuel
+     */
+    public boolean run(Program program) {
+        Thread thread = new Thread(null, () -> evaluateProgram(program), "evaluator", STACK_SIZE);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (failure != null) throw failure;
+        return finished;
+    }
+
+    private void evaluateProgram(Program program) {
+        try {
+            program.accept(this);
+            finished = true;
+        } catch (OutOfBoundsException e) {
+            outOfBounds = true;
+            finished = true;
+        } catch (GiveUpException e) {
+            finished = false;
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * The numbers the program prints, in order
+     */
+    public List<Integer> output() {
+        return output;
+    }
+
+    /**
+     * @return true if the program exits on an out of bounds access after printing the output
+     */
+    public boolean outOfBounds() {
+        return outOfBounds;
+    }
+
+    private void consume(long units) {
+        fuel -= units;
+        if (fuel < 0) throw new GiveUpException();
+    }
+
+    private Object evaluate(Expr e) {
+        e.accept(this);
+        return value;
+    }
+
+    private int evaluateInt(Expr e) {
+        return (Integer) evaluate(e);
+    }
+
+    private boolean evaluateBool(Expr e) {
+        return (Boolean) evaluate(e);
+    }
+
+    private int[] evaluateArray(Expr e) {
+        int[] array = (int[]) evaluate(e);
+        if (array == null) throw new GiveUpException();
+        return array;
+    }
+
+    private static Object defaultValue(AstType type) {
+        switch (type.kind()) {
+            case INT_TYPE:
+                return 0;
+            case BOOL_TYPE:
+                return false;
+            default:
+                return null;
+        }
+    }
+
+    private MethodDecl findMethod(String className, String methodName) {
+        ClassDecl classDecl = forest.nameToClassDecl(className);
+        while (true) {
+            for (MethodDecl methodDecl : classDecl.methoddecls()) {
+                if (methodDecl.name().equals(methodName)) return methodDecl;
+            }
+            classDecl = forest.getSuper(classDecl);
+        }
+    }
+
+    private void assign(String name, Object newValue) {
+        if (locals.containsKey(name)) {
+            locals.put(name, newValue);
+        } else {
+            thisInstance.fields.put(name, newValue);
+        }
+    }
+
+    @Override
+    public void visit(Program program) {
+        program.mainClass().accept(this);
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+        mainClass.mainStatement().accept(this);
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+        for (VarDecl varDecl : methodDecl.vardecls()) {
+            varDecl.accept(this);
+        }
+        for (Statement statement : methodDecl.body()) {
+            statement.accept(this);
+        }
+        value = evaluate(methodDecl.ret());
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+        locals.put(varDecl.name(), defaultValue(varDecl.type()));
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        consume(1);
+        for (Statement statement : blockStatement.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        consume(1);
+        if (evaluateBool(ifStatement.cond())) {
+            ifStatement.thencase().accept(this);
+        } else {
+            ifStatement.elsecase().accept(this);
+        }
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        consume(1);
+        while (evaluateBool(whileStatement.cond())) {
+            whileStatement.body().accept(this);
+        }
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        consume(1);
+        if (output.size() == MAX_OUTPUT) throw new GiveUpException();
+        output.add(evaluateInt(sysoutStatement.arg()));
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        consume(1);
+        assign(assignStatement.lv(), evaluate(assignStatement.rv()));
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        consume(1);
+        IdentifierExpr arrayVar = new IdentifierExpr(assignArrayStatement.lv());
+        int[] array = evaluateArray(arrayVar);
+        int index = evaluateInt(assignArrayStatement.index());
+        // like the compiled program, check the index before evaluating the assigned value
+        if (index < 0 || index >= array.length) throw new OutOfBoundsException();
+        array[index] = evaluateInt(assignArrayStatement.rv());
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        consume(1);
+        value = evaluateBool(e.e1()) && evaluateBool(e.e2());
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        consume(1);
+        value = evaluateInt(e.e1()) < evaluateInt(e.e2());
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        consume(1);
+        value = evaluateInt(e.e1()) + evaluateInt(e.e2());
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        consume(1);
+        value = evaluateInt(e.e1()) - evaluateInt(e.e2());
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        consume(1);
+        value = evaluateInt(e.e1()) * evaluateInt(e.e2());
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        consume(1);
+        int[] array = evaluateArray(e.arrayExpr());
+        int index = evaluateInt(e.indexExpr());
+        if (index < 0 || index >= array.length) throw new OutOfBoundsException();
+        value = array[index];
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        consume(1);
+        value = evaluateArray(e.arrayExpr()).length;
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        consume(1);
+        Instance owner = (Instance) evaluate(e.ownerExpr());
+        if (owner == null) throw new GiveUpException();
+        MethodDecl methodDecl = findMethod(owner.className, e.methodId());
+        Map<String, Object> calleeLocals = new HashMap<>();
+        for (int i = 0; i < e.actuals().size(); i++) {
+            calleeLocals.put(methodDecl.formals().get(i).name(), evaluate(e.actuals().get(i)));
+        }
+        Map<String, Object> callerLocals = locals;
+        Instance callerThis = thisInstance;
+        if (callDepth == MAX_CALL_DEPTH) throw new GiveUpException();
+        locals = calleeLocals;
+        thisInstance = owner;
+        callDepth++;
+        methodDecl.accept(this);
+        callDepth--;
+        locals = callerLocals;
+        thisInstance = callerThis;
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+        consume(1);
+        value = e.num();
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+        consume(1);
+        value = true;
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+        consume(1);
+        value = false;
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+        consume(1);
+        value = locals.containsKey(e.id()) ? locals.get(e.id()) : thisInstance.fields.get(e.id());
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+        consume(1);
+        value = thisInstance;
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        consume(1);
+        int length = evaluateInt(e.lengthExpr());
+        if (length < 0) throw new OutOfBoundsException();
+        consume(length);
+        value = new int[length];
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+        consume(1);
+        Instance instance = new Instance(e.classId());
+        ClassDecl classDecl = forest.nameToClassDecl(e.classId());
+        while (classDecl != null) {
+            for (VarDecl field : classDecl.fields()) {
+                consume(1);
+                instance.fields.put(field.name(), defaultValue(field.type()));
+            }
+            classDecl = forest.getSuper(classDecl);
+        }
+        value = instance;
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        consume(1);
+        value = !evaluateBool(e.e());
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+    }
+
+    @Override
+    public void visit(RefType t) {
+    }
+}
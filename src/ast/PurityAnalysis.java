@@ -0,0 +1,268 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Finds the pure methods: methods whose result depends only on their arguments, and which have no effect but
+ * returning it (or never returning). A pure method takes and returns only ints and booleans, reads and assigns
+ * only its parameters and local variables, allocates nothing, prints nothing, and only calls pure methods on
+ * this - and only where the call has a single possible target, so that the class of this can't change the
+ * result. The methods calling an impure one are removed from the candidates until none is left to remove.
+ * A pure method which may call itself, directly or through other pure methods, may be memoized.
+ */
+public class PurityAnalysis implements Visitor {
+    private final Map<String, List<STSymbol>> vtables;
+    private final ClassHierarchyAnalysis cha;
+    private final RapidTypeAnalysis rta;
+
+    private final Set<MethodDecl> pureMethods;
+    private final Set<MethodDecl> recursiveMethods;
+    /**
+     * The methods each candidate calls
+     */
+    private final Map<MethodDecl, Set<MethodDecl>> callees;
+
+    /**
+     * The method being visited: its class, the names of its parameters and local variables, whether it's
+     * still a candidate and the methods it calls
+     */
+    private String className;
+    private Set<String> locals;
+    private boolean pure;
+    private Set<MethodDecl> methodCallees;
+
+    public PurityAnalysis(Program program, Map<String, List<STSymbol>> vtables, ClassHierarchyAnalysis cha,
+                          RapidTypeAnalysis rta) {
+        this.vtables = vtables;
+        this.cha = cha;
+        this.rta = rta;
+        this.pureMethods = new LinkedHashSet<>();
+        this.recursiveMethods = new HashSet<>();
+        this.callees = new HashMap<>();
+        for (ClassDecl classDecl : program.classDecls()) {
+            for (MethodDecl methodDecl : classDecl.methoddecls()) {
+                if (rta.isReachable(methodDecl)) methodDecl.accept(this);
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = pureMethods.removeIf(methodDecl -> !pureMethods.containsAll(callees.get(methodDecl)));
+        }
+        for (MethodDecl methodDecl : pureMethods) {
+            if (reaches(methodDecl, methodDecl, new HashSet<>())) recursiveMethods.add(methodDecl);
+        }
+    }
+
+    public boolean isPure(MethodDecl methodDecl) {
+        return pureMethods.contains(methodDecl);
+    }
+
+    /**
+     * @return true if the method is pure and may call itself
+     */
+    public boolean isRecursivePure(MethodDecl methodDecl) {
+        return recursiveMethods.contains(methodDecl);
+    }
+
+    private boolean reaches(MethodDecl from, MethodDecl to, Set<MethodDecl> visited) {
+        for (MethodDecl callee : callees.get(from)) {
+            if (callee == to) return true;
+            if (visited.add(callee) && reaches(callee, to, visited)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isValueType(AstType type) {
+        return type.kind() == AstKind.INT_TYPE || type.kind() == AstKind.BOOL_TYPE;
+    }
+
+    @Override
+    public void visit(Program program) {
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+        className = methodDecl.enclosingScope().scopeName();
+        locals = new HashSet<>();
+        pure = isValueType(methodDecl.returnType());
+        methodCallees = new HashSet<>();
+        for (FormalArg formal : methodDecl.formals()) {
+            pure &= isValueType(formal.type());
+            locals.add(formal.name());
+        }
+        for (VarDecl varDecl : methodDecl.vardecls()) {
+            locals.add(varDecl.name());
+        }
+        for (Statement statement : methodDecl.body()) {
+            statement.accept(this);
+        }
+        methodDecl.ret().accept(this);
+        if (pure) {
+            pureMethods.add(methodDecl);
+            callees.put(methodDecl, methodCallees);
+        }
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        for (Statement statement : blockStatement.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        ifStatement.cond().accept(this);
+        ifStatement.thencase().accept(this);
+        ifStatement.elsecase().accept(this);
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        whileStatement.cond().accept(this);
+        whileStatement.body().accept(this);
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        if (!locals.contains(assignStatement.lv())) pure = false;
+        assignStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        pure = false;
+    }
+
+    private void visit(BinaryExpr e) {
+        e.e1().accept(this);
+        e.e2().accept(this);
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        for (Expr actual : e.actuals()) {
+            actual.accept(this);
+        }
+        if (e.ownerExpr().kind() != AstKind.THIS_EXPR) {
+            pure = false;
+            return;
+        }
+        List<String> classes = rta.liveClasses(cha.possibleClasses(className));
+        int slot = e.callSite().slot();
+        if (cha.targets(classes, slot).size() != 1) {
+            pure = false;
+            return;
+        }
+        methodCallees.add((MethodDecl) vtables.get(classes.get(0)).get(slot).declaration());
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+        if (!locals.contains(e.id())) pure = false;
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+        pure = false;
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        e.e().accept(this);
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+    }
+
+    @Override
+    public void visit(RefType t) {
+    }
+}
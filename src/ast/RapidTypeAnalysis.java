@@ -0,0 +1,246 @@
+package ast;
+
+import java.util.*;
+
+/**
+ * Rapid type analysis: finds which classes the program may instantiate and which methods it may call.
+ * Starting from the main statement, a class is live once a reachable method (or main) creates an instance
+ * of it, and a method is reachable once a reachable call site may dispatch to it - that is, some live class
+ * which the call's owner may be an instance of uses it at the called slot.
+ * Methods and vtables of the rest of the program are never needed.
+ */
+public class RapidTypeAnalysis implements Visitor {
+    private final InheritanceForest forest;
+    private final Map<String, List<STSymbol>> vtables;
+
+    private final Set<String> liveClasses;
+    /**
+     * LLVM function names (Class.method) of the reachable methods
+     */
+    private final Set<String> reachableMethods;
+    private final List<MethodCallExpr> callSites;
+    private final Deque<MethodDecl> worklist;
+
+    public RapidTypeAnalysis(Program program, InheritanceForest forest, Map<String, List<STSymbol>> vtables) {
+        this.forest = forest;
+        this.vtables = vtables;
+        this.liveClasses = new HashSet<>();
+        this.reachableMethods = new HashSet<>();
+        this.callSites = new ArrayList<>();
+        this.worklist = new ArrayDeque<>();
+        program.mainClass().accept(this);
+        while (!worklist.isEmpty()) {
+            worklist.pop().accept(this);
+        }
+    }
+
+    public boolean isLive(String className) {
+        return liveClasses.contains(className);
+    }
+
+    public boolean isReachable(MethodDecl methodDecl) {
+        return reachableMethods.contains(methodDecl.enclosingScope().scopeName() + "." + methodDecl.name());
+    }
+
+    /**
+     * The live classes among the given ones, in the same order
+     */
+    public List<String> liveClasses(List<String> classes) {
+        List<String> res = new ArrayList<>();
+        for (String className : classes) {
+            if (isLive(className)) res.add(className);
+        }
+        return res;
+    }
+
+    private void markLive(String className) {
+        if (!liveClasses.add(className)) return;
+        // call sites seen so far may now reach this class's methods
+        for (MethodCallExpr callSite : callSites) {
+            resolve(callSite, className);
+        }
+    }
+
+    /**
+     * Marks the method the call site dispatches to on instances of the given class as reachable, if the
+     * call's owner may be one
+     */
+    private void resolve(MethodCallExpr callSite, String className) {
+        String staticClass = callSite.callSite().receiverClass();
+        boolean exactClass = callSite.ownerExpr().kind() == AstKind.NEW_OBJECT_EXPR;
+        if (exactClass ? !className.equals(staticClass) : !forest.isA(className, staticClass)) return;
+        STSymbol target = vtables.get(className).get(callSite.callSite().slot());
+        if (reachableMethods.add(target.className() + "." + target.name())) {
+            worklist.push((MethodDecl) target.declaration());
+        }
+    }
+
+    @Override
+    public void visit(Program program) {
+    }
+
+    @Override
+    public void visit(ClassDecl classDecl) {
+    }
+
+    @Override
+    public void visit(MainClass mainClass) {
+        mainClass.mainStatement().accept(this);
+    }
+
+    @Override
+    public void visit(MethodDecl methodDecl) {
+        for (Statement statement : methodDecl.body()) {
+            statement.accept(this);
+        }
+        methodDecl.ret().accept(this);
+    }
+
+    @Override
+    public void visit(FormalArg formalArg) {
+    }
+
+    @Override
+    public void visit(VarDecl varDecl) {
+    }
+
+    @Override
+    public void visit(BlockStatement blockStatement) {
+        for (Statement statement : blockStatement.statements()) {
+            statement.accept(this);
+        }
+    }
+
+    @Override
+    public void visit(IfStatement ifStatement) {
+        ifStatement.cond().accept(this);
+        ifStatement.thencase().accept(this);
+        ifStatement.elsecase().accept(this);
+    }
+
+    @Override
+    public void visit(WhileStatement whileStatement) {
+        whileStatement.cond().accept(this);
+        whileStatement.body().accept(this);
+    }
+
+    @Override
+    public void visit(SysoutStatement sysoutStatement) {
+        sysoutStatement.arg().accept(this);
+    }
+
+    @Override
+    public void visit(AssignStatement assignStatement) {
+        assignStatement.rv().accept(this);
+    }
+
+    @Override
+    public void visit(AssignArrayStatement assignArrayStatement) {
+        assignArrayStatement.index().accept(this);
+        assignArrayStatement.rv().accept(this);
+    }
+
+    private void visit(BinaryExpr e) {
+        e.e1().accept(this);
+        e.e2().accept(this);
+    }
+
+    @Override
+    public void visit(AndExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(LtExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(AddExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(SubtractExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(MultExpr e) {
+        visit((BinaryExpr) e);
+    }
+
+    @Override
+    public void visit(ArrayAccessExpr e) {
+        e.arrayExpr().accept(this);
+        e.indexExpr().accept(this);
+    }
+
+    @Override
+    public void visit(ArrayLengthExpr e) {
+        e.arrayExpr().accept(this);
+    }
+
+    @Override
+    public void visit(MethodCallExpr e) {
+        e.ownerExpr().accept(this);
+        for (Expr actual : e.actuals()) {
+            actual.accept(this);
+        }
+        callSites.add(e);
+        for (String className : liveClasses) {
+            resolve(e, className);
+        }
+    }
+
+    @Override
+    public void visit(IntegerLiteralExpr e) {
+    }
+
+    @Override
+    public void visit(TrueExpr e) {
+    }
+
+    @Override
+    public void visit(FalseExpr e) {
+    }
+
+    @Override
+    public void visit(IdentifierExpr e) {
+    }
+
+    @Override
+    public void visit(ThisExpr e) {
+    }
+
+    @Override
+    public void visit(NewIntArrayExpr e) {
+        e.lengthExpr().accept(this);
+    }
+
+    @Override
+    public void visit(NewObjectExpr e) {
+        markLive(e.classId());
+    }
+
+    @Override
+    public void visit(NotExpr e) {
+        e.e().accept(this);
+    }
+
+    @Override
+    public void visit(IntAstType t) {
+    }
+
+    @Override
+    public void visit(BoolAstType t) {
+    }
+
+    @Override
+    public void visit(IntArrayAstType t) {
+    }
+
+    @Override
+    public void visit(RefType t) {
+    }
+}
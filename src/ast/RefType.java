@@ -20,6 +20,11 @@ public class RefType extends AstType {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.REF_TYPE;
+    }
+
     public String id() {
         return id;
     }
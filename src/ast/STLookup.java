@@ -3,19 +3,19 @@ import java.util.*;
 
 public class STLookup {
     /**
-     * Purpose: get the ST where variable with provided name, used in a method, is actually declared -
+     * Purpose: get the ST where variable with provided name ID, used in a method, is actually declared -
      * it could be a local variable in the method, it could be a field from the enclosing class,
      * or it could be a field in an ancestor class.
      */
-    public static SymbolTable findDeclTable(String variable, InheritanceForest forest, SymbolTable enclosingScope, SymbolTable programST) {
-        if(variable == null || forest == null || enclosingScope == null || programST == null) return null;
+    public static SymbolTable findDeclTable(int variable, SymbolTable enclosingScope, SymbolTable programST) {
+        if(variable < 0 || enclosingScope == null || programST == null) return null;
         if (enclosingScope.contains(variable, false)) return enclosingScope;
         // the next line is based on the fact that the SymbolTable of a class has no parent
         SymbolTable res = enclosingScope.getParent(); // never null - it's a class ST
-        String nm = res.scopeName();
-        ClassDecl resClass = forest.nameToClassDecl(nm);
+        ClassDecl resClass = (ClassDecl) programST.getSymbol(res.scopeId(), false).declaration();
         while(resClass != null && !res.contains(variable, false)) {
-            resClass = forest.getSuper(resClass);
+            STSymbol superSymbol = programST.getSymbol(resClass.superNameId(), false);
+            resClass = superSymbol == null ? null : (ClassDecl) superSymbol.declaration();
             res = classDeclToSymbolTable(resClass, programST);
         }
         return res;
@@ -23,47 +23,15 @@ public class STLookup {
 
     public static SymbolTable classDeclToSymbolTable(ClassDecl cls, SymbolTable programST) {
         if(cls == null || programST == null) return null;
-    	return programST.getSymbol(cls.name(), false).enclosedScope();
+    	return programST.getSymbol(cls.nameId(), false).enclosedScope();
     }
 
     /**
-     * Find the VariableIntro node declaring this variable name
+     * Find the VariableIntro node declaring the variable with this name ID
      */
-    public static AstNode getDeclNode(SymbolTable scope, String varName) {
-        if(scope == null || varName == null) return null;
-        return scope.getSymbol(varName, false).declaration();
-    }
-
-    public static String findInvokingClassNameForMethodCall(MethodCallExpr e, InheritanceForest forest, SymbolTable programST){
-        if (e.ownerExpr().getClass().getName().equals("ast.ThisExpr")){
-            return e.enclosingScope().getParent().scopeName();
-        }
-        if (e.ownerExpr().getClass().getName().equals("ast.NewObjectExpr")){
-            NewObjectExpr owner = (NewObjectExpr)e.ownerExpr();
-            return owner.classId();
-        }
-        String ownerName = ((IdentifierExpr)e.ownerExpr()).id(); //only option left for owner is identifier
-        //find declNode for owner
-        SymbolTable declTable = STLookup.findDeclTable(ownerName, forest, e.enclosingScope(), programST);
-        VariableIntroduction decl = (VariableIntroduction) STLookup.getDeclNode(declTable, ownerName);
-        //declType must be RefType otherwise couldn't invoke a method call
-        return ((RefType)decl.type()).id();
-    }
-
-    /**
-     * Check whether provided list of STSymbols representing fields in a class instance, contains
-     * a field with provided name.
-     * @param instanceShape     List of STSymbols representing the LL structure of a class instance
-     * @param fieldName         Field name we search for
-     * @return                  true if class instance has this field, else false
-     */
-    public static boolean classInstanceHasField(List<STSymbol> instanceShape, String fieldName) {
-        for (STSymbol field : instanceShape) {
-            if (field.name().equals(fieldName)) {
-                return true;
-            }
-        }
-        return false;
+    public static AstNode getDeclNode(SymbolTable scope, int varId) {
+        if(scope == null || varId < 0) return null;
+        return scope.getSymbol(varId, false).declaration();
     }
 
 
@@ -91,6 +59,22 @@ public class STLookup {
         return results;
     }
 
+    /**
+     * Creates a map from class names to the layouts of their instances and vtables, from the maps
+     * createProgramMaps creates
+     * @param programMaps   The vtables map followed by the instance templates map
+     * @return              Map from class names to their layouts
+     */
+    public static Map<String, ClassLayout> createClassLayouts(List<Map<String, List<STSymbol>>> programMaps){
+        Map<String, List<STSymbol>> vtablesMap = programMaps.get(0);
+        Map<String, List<STSymbol>> instanceTemplateMap = programMaps.get(1);
+        Map<String, ClassLayout> layouts = new HashMap<>();
+        for(String className : vtablesMap.keySet()){
+            layouts.put(className, new ClassLayout(instanceTemplateMap.get(className), vtablesMap.get(className)));
+        }
+        return layouts;
+    }
+
 
     /**
      * Returns list of methods declared in provided class.
@@ -102,7 +86,7 @@ public class STLookup {
         List<STSymbol> res = new ArrayList<>();
 
         for(MethodDecl method : classDecl.methoddecls()){
-            res.add(classTable.getSymbol(method.name(), true));
+            res.add(classTable.getSymbol(method.nameId(), true));
         }
 
         return res;
@@ -118,7 +102,7 @@ public class STLookup {
         List<STSymbol> res = new ArrayList<>();
 
         for(VarDecl field: classDecl.fields()){
-            res.add(classTable.getSymbol(field.name(), false));
+            res.add(classTable.getSymbol(field.nameId(), false));
         }
 
         return res;
@@ -138,22 +122,24 @@ public class STLookup {
         Set<String> localDeclNames = new HashSet<>();
         List<STSymbol> localDecls = new ArrayList<>();
         for(MethodDecl methodDecl : classDecl.methoddecls()){
-            localDecls.add(classTable.getSymbol(methodDecl.name(), true));
+            localDecls.add(classTable.getSymbol(methodDecl.nameId(), true));
             localDeclNames.add(methodDecl.name());
         }
 
-        int addedFromLocal = 0;
+        Set<String> parentNames = new HashSet<>();
         List<STSymbol> res = new ArrayList<>();
 
         for(STSymbol symbol : parentMethods){
+            parentNames.add(symbol.name());
+            //an overriding method takes the slot of the method it overrides
             if (!localDeclNames.contains(symbol.name())) res.add(symbol);
             else{
-                res.add(localDecls.get(addedFromLocal++));
+                res.add(classTable.getSymbol(((MethodDecl) symbol.declaration()).nameId(), true));
             }
         }
 
-        for(; addedFromLocal < localDecls.size(); addedFromLocal++){
-            res.add(localDecls.get(addedFromLocal));
+        for(STSymbol local : localDecls){
+            if (!parentNames.contains(local.name())) res.add(local);
         }
 
         return res;
@@ -171,7 +157,7 @@ public class STLookup {
         List<STSymbol> localDecls = new ArrayList<>();
 
         for(VarDecl field : classDecl.fields()){
-            localDecls.add(classTable.getSymbol(field.name(), false));
+            localDecls.add(classTable.getSymbol(field.nameId(), false));
             localDeclNames.add(field.name());
         }
 
@@ -205,7 +191,7 @@ public class STLookup {
             Map<String, List<STSymbol>> VTMap,
             Map<String, List<STSymbol>> instanceMap
     ){
-        SymbolTable classTable = prog.getSymbol(classDecl.name(), false).enclosedScope();
+        SymbolTable classTable = prog.getSymbol(classDecl.nameId(), false).enclosedScope();
 
         if (classDecl.superName() == null && !VTMap.containsKey(classDecl.name())){
             VTMap.put(classDecl.name(), getMethodSymbols(classDecl, classTable));
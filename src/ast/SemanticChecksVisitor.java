@@ -1,56 +1,107 @@
 package ast;
 
 import java.util.*;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks the program's classes concurrently on the common fork-join pool: each class, and each of its methods,
+ * is checked by a task with a visitor of its own, sharing only the program's analysis. The first task to find
+ * an error sets failed, which stops the others.
+ */
 public class SemanticChecksVisitor implements Visitor {
 
+    private final ProgramAnalysis analysis;
     private InheritanceForest forest;
     private SymbolTable programST;
     private Map<String, List<STSymbol>> vtables;
     private Map<String, List<STSymbol>> instanceTemplates;
-    private boolean isLegalForest;
-    private boolean isLegalST;
+    private Map<String, ClassLayout> layouts;
     private boolean visitResult; //should be set to true at builder but any subsequent sets are to false
     private void setVisitResult(boolean visitResult) {
         this.visitResult = visitResult;
+        if (!visitResult) failed.set(true);
     }
-    private Stack<Set<String>> definitelyInitialized;
-
-    public SemanticChecksVisitor() {
-        isLegalForest = true;
-        isLegalST = true;
+    /**
+     * Shared by all the tasks checking the program: whether one found an error, and the first exception one
+     * threw, which only matters if none did
+     */
+    private final AtomicBoolean failed;
+    private final AtomicReference<RuntimeException> taskException;
+    /**
+     * Definite initialization (req 14). Fields and formals are always initialized, so only the local variables
+     * of the method being visited are tracked: each is numbered, and its bit in initialized is set once it's
+     * definitely assigned. Branches share the state until one of them assigns, which copies it.
+     */
+    private Map<String, Integer> localIndices;
+    private long[] initialized;
+    private boolean initializedShared;
+
+    private static final AstType INT_TYPE = new IntAstType();
+    private static final AstType BOOL_TYPE = new BoolAstType();
+    private static final AstType INT_ARRAY_TYPE = new IntArrayAstType();
+    private Map<String, RefType> refTypes;
+
+    public SemanticChecksVisitor(ProgramAnalysis analysis) {
+        this(analysis, new AtomicBoolean(), new AtomicReference<>());
+    }
+
+    private SemanticChecksVisitor(ProgramAnalysis analysis, AtomicBoolean failed,
+                                  AtomicReference<RuntimeException> taskException) {
+        this.analysis = analysis;
+        this.failed = failed;
+        this.taskException = taskException;
+        forest = analysis.forest();
+        programST = analysis.programSymbolTable();
+        vtables = analysis.vtables();
+        instanceTemplates = analysis.instanceTemplates();
+        layouts = analysis.layouts();
         setVisitResult(true);
-        definitelyInitialized = new Stack<>();
+        localIndices = new HashMap<>();
+        initialized = new long[0];
+        refTypes = new HashMap<>();
     }
 
     public boolean isLegalProgram() {
-        return isVisitResult() && isLegalForest && isLegalST;
+        return isVisitResult() && analysis.isLegal();
     }
 
     @Override
     public void visit(Program program) {
-        forest = new InheritanceForest(program);
-        isLegalForest = forest.isLegalForest();
-        programST = new SymbolTable(program);
-        isLegalST = programST.isTableValid();
-        if (!isLegalForest || !isLegalST) return;
-
-        List<Map<String, List<STSymbol>>> maps = STLookup.createProgramMaps(programST, forest);
-        vtables = maps.get(0);
-        instanceTemplates = maps.get(1);
+        if (!analysis.isLegal()) return;
 
         program.mainClass().accept(this);
         if(!isVisitResult()) return;
 
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
         for (ClassDecl classDecl : program.classDecls()) {
-            classDecl.accept(this);
+            tasks.add(checkTask(classDecl));
         }
+        ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+        RuntimeException e = taskException.get();
+        if (e != null && !failed.get()) throw e;
+    }
+
+    /**
+     * @return a task checking the node with a new visitor, unless another task already found an error
+     */
+    private ForkJoinTask<?> checkTask(AstNode node) {
+        return ForkJoinTask.adapt(() -> {
+            if (failed.get()) return;
+            try {
+                node.accept(new SemanticChecksVisitor(analysis, failed, taskException));
+            } catch (RuntimeException e) {
+                // checked one at a time, an error found elsewhere may have stopped the check before this
+                taskException.compareAndSet(null, e);
+            }
+        });
     }
 
     @Override
     public void visit(ClassDecl classDecl) {
-        definitelyInitialized.push(new HashSet<>()); //for req 14
-
         if (classDecl.superName() != null) {
             String superName = classDecl.superName();
             //semantic check - no variable with name already defined in ancestor (req 4)
@@ -58,8 +109,6 @@ public class SemanticChecksVisitor implements Visitor {
 
             for (STSymbol symbol : instanceTemplates.get(superName)) {
                 parentFieldNames.add(symbol.name());
-                // add parent fields to initialized set
-                definitelyInitialized.peek().add(symbol.name());
             }
 
             for (VarDecl varDecl : classDecl.fields()) {
@@ -86,19 +135,34 @@ public class SemanticChecksVisitor implements Visitor {
             }
         }
 
-        // add fields to initialized set
         for (VarDecl varDecl : classDecl.fields()) {
             varDecl.accept(this);
             if(!isVisitResult()) return;
-            definitelyInitialized.peek().add(varDecl.name());
         }
 
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
         for (MethodDecl methodDecl : classDecl.methoddecls()) {
-            methodDecl.accept(this);
-            if (!isVisitResult()) return;
+            tasks.add(checkTask(methodDecl));
         }
+        ForkJoinTask.invokeAll(tasks);
+    }
 
-        definitelyInitialized.pop();
+    /**
+     * @return false only for a local variable that may not have been assigned yet
+     */
+    private boolean isDefinitelyInitialized(String name) {
+        Integer index = localIndices.get(name);
+        return index == null || (initialized[index >> 6] & (1L << index)) != 0;
+    }
+
+    private void markInitialized(String name) {
+        Integer index = localIndices.get(name);
+        if (index == null || isDefinitelyInitialized(name)) return;
+        if (initializedShared) {
+            initialized = initialized.clone();
+            initializedShared = false;
+        }
+        initialized[index >> 6] |= 1L << index;
     }
 
     /**
@@ -133,11 +197,10 @@ public class SemanticChecksVisitor implements Visitor {
      */
     private boolean sameStaticType(VariableIntroduction a, VariableIntroduction b) {
         //not the same ast type - return false
-        String aTypeName = a.type().getClass().getName();
-        String bTypeName = b.type().getClass().getName();
-        if (!aTypeName.equals(bTypeName)) return false;
+        AstKind aTypeKind = a.type().kind();
+        if (aTypeKind != b.type().kind()) return false;
 
-        if (aTypeName.equals("ast.RefType")) {
+        if (aTypeKind == AstKind.REF_TYPE) {
             //both reference, check that to the same class
             String aClassName = ((RefType) a.type()).id();
             String bClassName = ((RefType) b.type()).id();
@@ -155,9 +218,9 @@ public class SemanticChecksVisitor implements Visitor {
      * @return varToCheck is an covariant of toCheckFor
      */
     private boolean isCovariant(AstType varToCheck, AstType toCheckFor) {
-        if (varToCheck.getClass().getName().equals(toCheckFor.getClass().getName())) {
+        if (varToCheck.kind() == toCheckFor.kind()) {
             //both the same ast type - check which one
-            if (!varToCheck.getClass().getName().equals("ast.RefType")) {
+            if (varToCheck.kind() != AstKind.REF_TYPE) {
                 //they are both the same non reference type - either int, boolean or int[]
                 return true;
             }
@@ -169,123 +232,81 @@ public class SemanticChecksVisitor implements Visitor {
 
     @Override
     public void visit(MainClass mainClass) {
-        definitelyInitialized.push(new HashSet<>()); //for req 14
+        localIndices.clear();
+        initialized = new long[0];
+        initializedShared = false;
         mainClass.mainStatement().accept(this);
-        definitelyInitialized.pop();
     }
 
     /**
      * given an expression this method checks its type and returns it
-     * if it's a reference type this method makes sure to have the correct id set
+     * the type is computed once, from the types of the subexpressions, and kept on the expression
      *
      * @param e
      * @return AstType representing the type of e, null if the expression is not legal
      */
     private AstType getExprType(Expr e) {
-        String dynamicExprName = e.getClass().getName();
-
-        //int array
-        if (dynamicExprName.equals("ast.NewIntArrayExpr")) return new IntArrayAstType();
-
-        if (isIntExpr(e)) return new IntAstType();
-
-        if (isBooleanExpr(e)) return new BoolAstType();
-
-        String[] binaryOps = {"ast.AddExpr", "ast.SubtractExpr", "ast.LtExpr", "ast.MultExpr", "ast.AndExpr"};
-        if (Arrays.asList(binaryOps).contains(dynamicExprName)) {
-            //binary must be either int or bool, so if we're here than it's not a legal expression
-            return null;
-        }
-
-        //now we are left with: MethodCallExpr, IdentifierExpr, NewObjectExpr or ThisExpr
-        if (dynamicExprName.equals("ast.IdentifierExpr")) {
-            return identifierExprToType((IdentifierExpr) e);
-        }
-        if (dynamicExprName.equals("ast.MethodCallExpr")) {
-            return methodCallerToReturnType((MethodCallExpr) e);
-        }
-        //in the next two cases, the result will be a RefType
-        // but it doesn't exists in the program so we have to build it
-        String id;
-        if (dynamicExprName.equals("ast.NewObjectExpr")) {
-            id = ((NewObjectExpr) e).classId();
-        } else { //the only possible expression left is ThisExpr
-            //if enclosingScope is null we must be in the main class ahd therefore ThisExpr is illegal
-            if(e.enclosingScope() == null) return null;
-
-            id = e.enclosingScope().getParent().scopeName();
-        }
-        return new RefType(id);
+        if (!e.isTyped()) e.setStaticType(computeExprType(e));
+        return e.staticType();
     }
 
     /**
-     * This method checks if a given expression is of type int
-     * For illegal binary expressions it returns false
      * Note that it doesn't check the legality of: ArrayLengthExpr or ArrayAccessExpr
-     * but simply assumes they are int
+     * but simply assumes they are int - other places in the visitor should check legality
      *
      * @param e
-     * @return
+     * @return AstType representing the type of e, null if the expression is not legal
      */
-    private boolean isIntExpr(Expr e) {
-        String dynamicExprName = e.getClass().getName();
-        String[] exprNames;
-
-        exprNames = new String[]{"ast.IntegerLiteralExpr", "ast.ArrayLengthExpr", "ast.ArrayAccessExpr"};
-        if (Arrays.asList(exprNames).contains(dynamicExprName)) {
-            //for ArrayLengthExpr and ArrayAccessExpr other places in the visitor should check legality
-            return true;
-        }
-
-        exprNames = new String[]{"ast.AddExpr", "ast.SubtractExpr", "ast.MultExpr"};
-        if (Arrays.asList(exprNames).contains(dynamicExprName)) {
-            BinaryExpr be = (BinaryExpr) e;
-            //both need to be int
-            //we call the original getExprType because it could be identifier or method call
-            boolean isE1Int = getExprType(be.e1()) instanceof IntAstType;
-            boolean isE2Int = getExprType(be.e2()) instanceof IntAstType;
-            return isE1Int && isE2Int;
-        }
-        //if we're here than the Expr doesn't fit an int type
-        return false;
+    private AstType computeExprType(Expr e) {
+        switch (e.kind()) {
+            case NEW_INT_ARRAY_EXPR:
+                return INT_ARRAY_TYPE;
+            case INTEGER_LITERAL_EXPR:
+            case ARRAY_LENGTH_EXPR:
+            case ARRAY_ACCESS_EXPR:
+                return INT_TYPE;
+            case ADD_EXPR:
+            case SUBTRACT_EXPR:
+            case MULT_EXPR:
+                //both need to be int
+                return operandsAreInt((BinaryExpr) e) ? INT_TYPE : null;
+            case LT_EXPR:
+                return operandsAreInt((BinaryExpr) e) ? BOOL_TYPE : null;
+            case AND_EXPR:
+                //both need to be boolean
+                AndExpr ae = (AndExpr) e;
+                boolean isE1Bool = getExprType(ae.e1()) instanceof BoolAstType;
+                boolean isE2Bool = getExprType(ae.e2()) instanceof BoolAstType;
+                return isE1Bool && isE2Bool ? BOOL_TYPE : null;
+            case TRUE_EXPR:
+            case FALSE_EXPR:
+                return BOOL_TYPE;
+            case NOT_EXPR:
+                return getExprType(((NotExpr) e).e()) instanceof BoolAstType ? BOOL_TYPE : null;
+            case IDENTIFIER_EXPR:
+                return identifierExprToType((IdentifierExpr) e);
+            case METHOD_CALL_EXPR:
+                return methodCallerToReturnType((MethodCallExpr) e);
+            case NEW_OBJECT_EXPR:
+                return refType(((NewObjectExpr) e).classId());
+            default: //the only possible expression left is ThisExpr
+                //if enclosingScope is null we must be in the main class ahd therefore ThisExpr is illegal
+                if (e.enclosingScope() == null) return null;
+                return refType(e.enclosingScope().getParent().scopeName());
+        }
+    }
+
+    private boolean operandsAreInt(BinaryExpr be) {
+        boolean isE1Int = getExprType(be.e1()) instanceof IntAstType;
+        boolean isE2Int = getExprType(be.e2()) instanceof IntAstType;
+        return isE1Int && isE2Int;
     }
 
     /**
-     * This method checks if a given expression is of type boolean
-     * For an illegal and expressions it returns false
-     *
-     * @param e
-     * @return
+     * the types of new and this expressions don't exist in the program so we build them, once per class
      */
-    private boolean isBooleanExpr(Expr e) {
-        String dynamicExprName = e.getClass().getName();
-
-        if (dynamicExprName.equals("ast.TrueExpr") || dynamicExprName.equals("ast.FalseExpr")) {
-            return true;
-        }
-
-        if (dynamicExprName.equals("ast.NotExpr")) {
-            return getExprType(((NotExpr) e).e()) instanceof BoolAstType;
-        }
-
-        if (dynamicExprName.equals("ast.AndExpr")) {
-            AndExpr ae = (AndExpr) e;
-            //both need to be boolean
-            boolean isE1Bool = getExprType(ae.e1()) instanceof BoolAstType;
-            boolean isE2Bool = getExprType(ae.e2()) instanceof BoolAstType;
-            return isE1Bool && isE2Bool;
-        }
-
-        if (dynamicExprName.equals("ast.LtExpr")) {
-            //both need to be int
-            BinaryExpr be = (BinaryExpr) e;
-            boolean isE1Int = getExprType(be.e1()) instanceof IntAstType;
-            boolean isE2Int = getExprType(be.e2()) instanceof IntAstType;
-            return isE1Int && isE2Int;
-        }
-
-        //if we're here than the Expr doesn't fit a boolean type
-        return false;
+    private RefType refType(String id) {
+        return refTypes.computeIfAbsent(id, RefType::new);
     }
 
     /**
@@ -294,8 +315,8 @@ public class SemanticChecksVisitor implements Visitor {
      * @return
      */
     private AstType identifierExprToType(IdentifierExpr e){
-        AstNode decl = STLookup.getDeclNode(STLookup.findDeclTable(e.id(), forest, e.enclosingScope(), programST), e.id());
-        return decl != null ? ((VariableIntroduction) decl).type() : null;
+        STSymbol binding = e.binding();
+        return binding != null ? ((VariableIntroduction) binding.declaration()).type() : null;
     }
 
     /**
@@ -306,52 +327,25 @@ public class SemanticChecksVisitor implements Visitor {
      * @return AstType that method called returns, null if the call is illegal
      */
     private AstType methodCallerToReturnType(MethodCallExpr e) {
-        String ownerExprType = e.ownerExpr().getClass().getName();
-        //we'll get the invoker class name and than lookup the vtable to get the MethodDecl
-        String callerClassName;
-
-        if (ownerExprType.equals("ast.ThisExpr")) {
-            callerClassName = e.enclosingScope().getParent().scopeName();
-        } else if (ownerExprType.equals("ast.NewObjectExpr")) {
-            callerClassName = ((NewObjectExpr) (e.ownerExpr())).classId();
-        } else if (ownerExprType.equals("ast.IdentifierExpr")) {
-            IdentifierExpr ie = (IdentifierExpr) (e.ownerExpr());
-            //get declaration node of invoker
-            AstNode decl = STLookup.getDeclNode(STLookup.findDeclTable(ie.id(), forest, e.enclosingScope(), programST), ie.id());
-            if(decl == null) return null;
-            VariableIntroduction varIntro = (VariableIntroduction) decl;
-            //check to see that caller is RefType
-            if (!varIntro.type().getClass().getName().equals("ast.RefType")) return null;
-            callerClassName = ((RefType) varIntro.type()).id();
-        }
-        /* if the caller is none of the above than it's not a legal call
+        /* the call site is null if the caller is not this, new or a RefType variable of a class defined in the
+         * program, or if the method called doesn't exist in that class.
          * check https://www.cs.tau.ac.il/research/yotam.feldman/courses/wcc20/project.html
          * two bullets before last in the overview to be convinced of this*/
-        else return null;
-
-        //check to see that owner is actually a class defined in the program
-        if (forest.nameToClassDecl(callerClassName) == null) return null;
-
-        for (STSymbol symbol : vtables.get(callerClassName)) {
-            if (symbol.name().equals(e.methodId())) {
-                return ((MethodDecl) (symbol.declaration())).returnType();
-            }
-        }
-        //if we're here than the method called doesn't exists
-        return null;
+        CallSite callSite = e.callSite();
+        return callSite != null ? callSite.target().returnType() : null;
     }
 
 
     @Override
     public void visit(MethodDecl methodDecl) {
-        // clone class scope
-        definitelyInitialized.push(new HashSet<>(definitelyInitialized.peek()));
-
+        // number the locals, none initialized yet. locals hide fields of the same name
+        localIndices.clear();
         for (VarDecl var : methodDecl.vardecls()) {
-            // remove hidden fields from set for current scope
-            definitelyInitialized.peek().remove(var.name());
+            localIndices.put(var.name(), localIndices.size());
             var.accept(this);
         }
+        initialized = new long[(localIndices.size() + 63) >> 6];
+        initializedShared = false;
 
         for (FormalArg formal : methodDecl.formals()) {
             formal.accept(this);
@@ -370,14 +364,10 @@ public class SemanticChecksVisitor implements Visitor {
         }
 
         methodDecl.ret().accept(this);
-
-        // clear for next method
-        definitelyInitialized.pop();
     }
 
     @Override
     public void visit(FormalArg formalArg) {
-        definitelyInitialized.peek().add(formalArg.name());
         visit((VariableIntroduction) formalArg);
     }
 
@@ -393,7 +383,7 @@ public class SemanticChecksVisitor implements Visitor {
      */
     private void visit(VariableIntroduction varIntro) {
         AstType varType = varIntro.type();
-        if (varType.getClass().getName().equals("ast.RefType")) {
+        if (varType.kind() == AstKind.REF_TYPE) {
             if (forest.nameToClassDecl(((RefType) varType).id()) == null) setVisitResult(false);
         }
         //else than the type is not a reference so it's a legal type
@@ -420,19 +410,29 @@ public class SemanticChecksVisitor implements Visitor {
             setVisitResult(false);
             return;
         }
-        Set<String> base = new HashSet<>(definitelyInitialized.peek());
+        long[] base = initialized;
+        boolean baseShared = initializedShared;
 
-        definitelyInitialized.push(new HashSet<>(base));
+        initializedShared = true;
         ifStatement.thencase().accept(this);
-        definitelyInitialized.push(new HashSet<>(base));
+        long[] branch1 = initialized;
+        initialized = base;
+        initializedShared = true;
         ifStatement.elsecase().accept(this);
+        long[] branch2 = initialized;
 
-        Set <String> branch2 =  definitelyInitialized.pop();
-        Set <String> branch1 =  definitelyInitialized.pop();
-        branch1.retainAll(branch2); // set intersection
-
-        // add the intersection back to the current scope
-        definitelyInitialized.peek().addAll(branch1);
+        if (branch1 == base && branch2 == base) {
+            // neither branch assigned anything
+            initializedShared = baseShared;
+            return;
+        }
+        // set intersection, into a branch's own copy
+        initialized = branch1 != base ? branch1 : branch2;
+        long[] other = branch1 != base ? branch2 : branch1;
+        for (int i = 0; i < initialized.length; i++) {
+            initialized[i] &= other[i];
+        }
+        initializedShared = false;
     }
 
     @Override
@@ -448,10 +448,13 @@ public class SemanticChecksVisitor implements Visitor {
             setVisitResult(false);
             return;
         }
-        definitelyInitialized.push(new HashSet<>(definitelyInitialized.peek()));
+        long[] base = initialized;
+        boolean baseShared = initializedShared;
+        initializedShared = true;
         whileStatement.body().accept(this);
         // we don't know if the condition so we assume it didn't change anything in upper scope
-        definitelyInitialized.pop();
+        initialized = base;
+        initializedShared = baseShared;
     }
 
     @Override
@@ -466,23 +469,21 @@ public class SemanticChecksVisitor implements Visitor {
 
     /**
      * this method is written as to not duplecate code for both AssignStatement and AssignArrayStatement
-     * @param assigneeName
-     * @param enclosingScope
-     * @return VariableIntroduction node where assigneeName was defined or null if it wasn't
+     * @param binding   the assignment's binding
+     * @return VariableIntroduction node where the assignee was defined or null if it wasn't
      */
-    private VariableIntroduction assigneeDeclNode(String assigneeName, SymbolTable enclosingScope){
-        SymbolTable declTable = STLookup.findDeclTable(assigneeName, forest, enclosingScope, programST);
+    private VariableIntroduction assigneeDeclNode(STSymbol binding){
         //req 16 - assignedValueType is defined
-        if(declTable == null){
+        if(binding == null){
             setVisitResult(false);
             return null;
         }
-        return (VariableIntroduction) STLookup.getDeclNode(declTable, assigneeName);
+        return (VariableIntroduction) binding.declaration();
     }
 
     @Override
     public void visit(AssignStatement assignStatement) {
-        VariableIntroduction assigneeDecl = assigneeDeclNode(assignStatement.lv(), assignStatement.enclosingScope());
+        VariableIntroduction assigneeDecl = assigneeDeclNode(assignStatement.binding());
         //req 16 - assignedValueType is defined
         if(assigneeDecl == null) return;
 
@@ -498,12 +499,12 @@ public class SemanticChecksVisitor implements Visitor {
             return;
         }
         assignStatement.rv().accept(this);
-        definitelyInitialized.peek().add(assignStatement.lv());
+        markInitialized(assignStatement.lv());
     }
 
     @Override
     public void visit(AssignArrayStatement assignArrayStatement) {
-        VariableIntroduction arrayDecl = assigneeDeclNode(assignArrayStatement.lv(), assignArrayStatement.enclosingScope());
+        VariableIntroduction arrayDecl = assigneeDeclNode(assignArrayStatement.binding());
         //req 16 - assignedValueType is defined
         if(arrayDecl == null) return;
 
@@ -515,7 +516,7 @@ public class SemanticChecksVisitor implements Visitor {
             return;
         }
 
-        if (!definitelyInitialized.peek().contains(assignArrayStatement.lv())) {
+        if (!isDefinitelyInitialized(assignArrayStatement.lv())) {
             setVisitResult(false);
             return;
         }
@@ -626,27 +627,14 @@ public class SemanticChecksVisitor implements Visitor {
         }
 
         // req 10 method signature check
-        String invokingClass = STLookup.findInvokingClassNameForMethodCall(e, forest, programST);
-        List<STSymbol> invokingClassVT = vtables.get(invokingClass);
-        // invoking class is undeclared
-        if (invokingClassVT == null) {
-            setVisitResult(false);
-            return;
-        }
-        int methodIndexInVT = -1;
-        for (int i = 0; i < invokingClassVT.size(); i++){
-            if (invokingClassVT.get(i).name().equals(e.methodId())) {
-                methodIndexInVT = i;
-                break;
-            }
-        }
-        // method not in VT
-        if (methodIndexInVT == -1) {
+        CallSite callSite = e.callSite();
+        // invoking class is undeclared, or method not in its VT
+        if (callSite == null) {
             setVisitResult(false);
             return;
         }
 
-        MethodDecl methodDecl = (MethodDecl) vtables.get(invokingClass).get(methodIndexInVT).declaration();
+        MethodDecl methodDecl = callSite.target();
 
         if (methodDecl.formals().size() != e.actuals().size()) {
             setVisitResult(false);
@@ -661,7 +649,7 @@ public class SemanticChecksVisitor implements Visitor {
             }
             AstType actualType = getExprType(currActual);
 
-            if (actualType == null || formalType.getClass() != actualType.getClass()) {
+            if (actualType == null || formalType.kind() != actualType.kind()) {
                 setVisitResult(false);
                 return;
             } else if (!isCovariant(actualType, formalType)) {
@@ -691,21 +679,21 @@ public class SemanticChecksVisitor implements Visitor {
     @Override
     public void visit(IdentifierExpr e) {
         // req 13 - make sure this identifier is a local variable, a formal parameter, or a field
-        SymbolTable enclosingST = STLookup.findDeclTable(e.id(), forest, e.enclosingScope(), programST);
+        STSymbol binding = e.binding();
         // var is not declared
-        if (enclosingST == null) {
+        if (binding == null) {
             setVisitResult(false);
             return;
         }
-        if (enclosingST.contains(e.id(), false)) {
-            if (!definitelyInitialized.peek().contains(e.id())) {
+        if (binding.kind() == STSymbol.SymbolKind.VAR) {
+            if (!isDefinitelyInitialized(e.id())) {
                 setVisitResult(false);
             }
             return;
         }
         String enclosingClassName = e.enclosingScope().getParent().scopeName();
-        List<STSymbol> classInstanceShape = instanceTemplates.get(enclosingClassName);
-        if (classInstanceShape == null || !STLookup.classInstanceHasField(classInstanceShape, e.id())) {
+        ClassLayout classLayout = layouts.get(enclosingClassName);
+        if (classLayout == null || !classLayout.hasField(e.id())) {
             setVisitResult(false);
         }
     }
@@ -728,7 +716,7 @@ public class SemanticChecksVisitor implements Visitor {
     @Override
     public void visit(NewObjectExpr e) {
         // req 8 - new A(); <=> A if defined
-        if (!programST.contains(e.classId(), false)) {
+        if (!programST.contains(e.nameId(), false)) {
             setVisitResult(false);
             return;
         }
@@ -764,8 +752,11 @@ public class SemanticChecksVisitor implements Visitor {
 
     }
 
+    /**
+     * @return false once this visitor, or any other task checking the program, found an error
+     */
     public boolean isVisitResult() {
-        return visitResult;
+        return visitResult && !failed.get();
     }
 
 }
@@ -14,4 +14,9 @@ public class SubtractExpr extends BinaryExpr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.SUBTRACT_EXPR;
+    }
 }
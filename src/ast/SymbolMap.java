@@ -0,0 +1,62 @@
+package ast;
+
+/**
+ * Map from interned name IDs to symbols: an open addressing hash table with linear probing. A key is stored as
+ * its ID + 1, so that 0 marks an empty slot. The table starts with room for a few symbols, since most scopes
+ * have only a few, and doubles once it's half full.
+ */
+class SymbolMap {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] keys;
+    private STSymbol[] values;
+    private int size;
+
+    SymbolMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new STSymbol[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private int slot(int id) {
+        int mask = keys.length - 1;
+        // spread consecutive IDs, which names declared together get, over the table
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != 0 && keys[slot] != id + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    STSymbol get(int id) {
+        return values[slot(id)];
+    }
+
+    void put(int id, STSymbol symbol) {
+        int slot = slot(id);
+        if (keys[slot] == 0) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = slot(id);
+            }
+            keys[slot] = id + 1;
+            size++;
+        }
+        values[slot] = symbol;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        STSymbol[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new STSymbol[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i] - 1);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
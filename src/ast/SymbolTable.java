@@ -1,12 +1,18 @@
 package ast;
-import java.util.HashMap;
-import java.util.List;
 
+/**
+ * Symbols of a scope, keyed by the IDs the program's Names interns their names to. Variables, fields and classes
+ * are kept apart from methods, whose table only class scopes allocate, once they get a method.
+ * Nodes are resolved by the name IDs SymbolTableBuilder stores on them; the lookups by name are for callers
+ * holding only a name, and hash it once to find its ID.
+ */
 public class SymbolTable {
 	
 	private String scopeName;
-    private HashMap<String, STSymbol> entries;
-    private  HashMap<String, STSymbol> methodEntries;
+    private int scopeId;
+    private Names names;
+    private SymbolMap entries;
+    private SymbolMap methodEntries;
     private SymbolTable parentSymbolTable;
     private boolean tableValid;
 
@@ -20,7 +26,9 @@ public class SymbolTable {
     public SymbolTable(Program program) {
         tableValid = true;
         this.parentSymbolTable = null;
-        this.entries = new HashMap<>();
+        this.scopeId = -1;
+        this.names = program.names();
+        this.entries = new SymbolMap();
         SymbolTableBuilder stb = new SymbolTableBuilder(program, this);
         if (!stb.isBuildSuccessful()) {
             tableValid = false;
@@ -35,14 +43,17 @@ public class SymbolTable {
     public SymbolTable(SymbolTable parentST, String id) {
 		this.scopeName = id;
         this.parentSymbolTable = parentST;
-        this.entries = new HashMap<>();
-        this.methodEntries = new HashMap<>();
+        this.names = parentST.names;
+        this.scopeId = names.id(id);
+        this.entries = new SymbolMap();
+        this.methodEntries = null;
     }
-    public void addEntry(String name, STSymbol symbol) {
+    public void addEntry(int id, STSymbol symbol) {
         if (symbol.kind() == STSymbol.SymbolKind.METHOD) {
-            this.methodEntries.put(name, symbol);
+            if (this.methodEntries == null) this.methodEntries = new SymbolMap();
+            this.methodEntries.put(id, symbol);
         } else {
-            this.entries.put(name, symbol);
+            this.entries.put(id, symbol);
         }
     }
     
@@ -50,23 +61,37 @@ public class SymbolTable {
     	return scopeName;
     }
 
+    /**
+     * @return the ID of scopeName
+     */
+    public int scopeId() {
+        return scopeId;
+    }
+
+    public Names names() {
+        return names;
+    }
+
+    protected boolean contains(int id, boolean isMethod) {
+        return getSymbol(id, isMethod) != null;
+    }
+
     protected boolean contains(String name, boolean isMethod) {
-        if (isMethod) {
-            return this.methodEntries.containsKey(name);
-        } else {
-            return this.entries.containsKey(name);
-        }
+        return getSymbol(name, isMethod) != null;
     }
 
     public SymbolTable getParent() {
         return this.parentSymbolTable;
     }
 
+    public STSymbol getSymbol(int id, boolean isMethod) {
+        // -1 is the ID of a name that was never interned, which isn't in any table
+        if (id < 0) return null;
+        SymbolMap table = isMethod ? this.methodEntries : this.entries;
+        return table == null ? null : table.get(id);
+    }
+
     public STSymbol getSymbol(String name, boolean isMethod) {
-        if (isMethod) {
-            return this.methodEntries.get(name);
-        } else {
-            return this.entries.get(name);
-        }
+        return getSymbol(names.lookup(name), isMethod);
     }
 }
@@ -5,6 +5,7 @@ import java.util.*;
 public class SymbolTableBuilder {
     Program program;
     SymbolTable programSymTable;
+    Names names;
     boolean buildSuccessful;
 
     public boolean isBuildSuccessful() {
@@ -14,6 +15,7 @@ public class SymbolTableBuilder {
     public SymbolTableBuilder(Program program, SymbolTable programSymTable) {
         this.program = program;
         this.programSymTable = programSymTable;
+        this.names = program.names();
         buildProgramSymbolTable();
     }
 
@@ -26,13 +28,14 @@ public class SymbolTableBuilder {
     private void addFieldSymbols(ClassDecl classDecl, SymbolTable declST) {
         List<VarDecl> fields = classDecl.fields();
         for (VarDecl field : fields) {
+            field.setNameId(names.id(field.name()));
             // no field redeclaration (req 4)
-            if (declST.contains(field.name(), false)) {
+            if (declST.contains(field.nameId(), false)) {
                 this.buildSuccessful = false;
                 return;
             }
             STSymbol fieldSymbol = new STSymbol(field.name(), STSymbol.SymbolKind.FIELD, classDecl.name(), field);
-            declST.addEntry(field.name(), fieldSymbol);
+            declST.addEntry(field.nameId(), fieldSymbol);
         }
     }
 
@@ -45,8 +48,9 @@ public class SymbolTableBuilder {
     private void addMethodSymbols(ClassDecl classDecl, SymbolTable classDeclST) {
         List<MethodDecl> methods = classDecl.methoddecls();
         for (MethodDecl method : methods) {
+            method.setNameId(names.id(method.name()));
             // No overloading (req 5)
-            if (classDeclST.contains(method.name(), true)) {
+            if (classDeclST.contains(method.nameId(), true)) {
                 this.buildSuccessful = false;
                 return;
             }
@@ -54,7 +58,7 @@ public class SymbolTableBuilder {
             SymbolTable methodST = new SymbolTable(classDeclST, method.name());
             addVariableSymbols(method, methodST);
             STSymbol methodSymbol = new STSymbol(method.name(), STSymbol.SymbolKind.METHOD, classDecl.name(), method, methodST);
-            classDeclST.addEntry(method.name(), methodSymbol);
+            classDeclST.addEntry(method.nameId(), methodSymbol);
         }
     }
 
@@ -68,24 +72,26 @@ public class SymbolTableBuilder {
         List<VarDecl> variables = method.vardecls();
         List<FormalArg> arguments = method.formals();
         for (VarDecl variable : variables) {
+            variable.setNameId(names.id(variable.name()));
             // no variable redeclaration (req 22)
-            if (methodST.contains(variable.name(), false)) {
+            if (methodST.contains(variable.nameId(), false)) {
                 buildSuccessful = false;
                 return;
             }
             variable.setEnclosingScope(methodST);
             STSymbol variableSymbol = new STSymbol(variable.name(), STSymbol.SymbolKind.VAR, method.enclosingScope().scopeName(), variable);
-            methodST.addEntry(variable.name(), variableSymbol);
+            methodST.addEntry(variable.nameId(), variableSymbol);
         }
         for (FormalArg arg : arguments) {
+            arg.setNameId(names.id(arg.name()));
             // no variable redeclaration for formals too (req 22)
-            if (methodST.contains(arg.name(), false)) {
+            if (methodST.contains(arg.nameId(), false)) {
                 buildSuccessful = false;
                 return;
             }
             arg.setEnclosingScope(methodST);
             STSymbol argSymbol = new STSymbol(arg.name(), STSymbol.SymbolKind.VAR, method.enclosingScope().scopeName(), arg);
-            methodST.addEntry(arg.name(), argSymbol);
+            methodST.addEntry(arg.nameId(), argSymbol);
         }
         for(Statement statement : method.body()){
             setEnclosingScopeForThisExpr(statement, methodST);
@@ -96,27 +102,29 @@ public class SymbolTableBuilder {
     /**
      * The next methods all named setEnclosingScopeForThisExpr, overloading each other,
      * are all for finding potential ThisExpr in a given statement and setting its enclosing scope.
-     * This is needed for finding out which class a given ThisExpr is reffering to
+     * This is needed for finding out which class a given ThisExpr is reffering to.
+     * They also store on the nodes referring to a variable, method or class the ID of its name,
+     * by which they are resolved.
      */
     private void setEnclosingScopeForThisExpr(Statement statement, SymbolTable methodST){
         statement.setEnclosingScope(methodST);
-        switch (statement.getClass().getName()){
-            case "ast.AssignArrayStatement":
+        switch (statement.kind()){
+            case ASSIGN_ARRAY_STATEMENT:
                 setEnclosingScopeForThisExpr((AssignArrayStatement)statement, methodST);
                 break;
-            case "ast.AssignStatement":
+            case ASSIGN_STATEMENT:
                 setEnclosingScopeForThisExpr((AssignStatement)statement, methodST);
                 break;
-            case "ast.BlockStatement":
+            case BLOCK_STATEMENT:
                 setEnclosingScopeForThisExpr((BlockStatement)statement, methodST);
                 break;
-            case "ast.IfStatement":
+            case IF_STATEMENT:
                 setEnclosingScopeForThisExpr((IfStatement)statement, methodST);
                 break;
-            case "ast.SysoutStatement":
+            case SYSOUT_STATEMENT:
                 setEnclosingScopeForThisExpr((SysoutStatement)statement, methodST);
                 break;
-            case "ast.WhileStatement":
+            case WHILE_STATEMENT:
                 setEnclosingScopeForThisExpr((WhileStatement)statement, methodST);
                 break;
             default:
@@ -125,11 +133,13 @@ public class SymbolTableBuilder {
     }
 
     private void setEnclosingScopeForThisExpr(AssignArrayStatement statement, SymbolTable methodST){
+        statement.setNameId(names.id(statement.lv()));
         setEnclosingScopeForThisExpr(statement.rv(), methodST);
         setEnclosingScopeForThisExpr(statement.index(), methodST);
     }
 
     private void setEnclosingScopeForThisExpr(AssignStatement statement, SymbolTable methodST){
+        statement.setNameId(names.id(statement.lv()));
         setEnclosingScopeForThisExpr(statement.rv(), methodST);
     }
 
@@ -156,34 +166,38 @@ public class SymbolTableBuilder {
 
     private void setEnclosingScopeForThisExpr(Expr e, SymbolTable methodST){
         e.setEnclosingScope(methodST);
-        String classTypeName = e.getClass().getName();
-        String[] binaryOps = {"ast.AddExpr", "ast.AndExpr", "ast.LtExpr", "ast.MultExpr", "ast.SubtractExpr"};
-        if(Arrays.asList(binaryOps).contains(classTypeName)){
+        if(e.kind().isBinaryExpr()){
             setEnclosingScopeForThisExpr(((BinaryExpr)e).e1(), methodST);
             setEnclosingScopeForThisExpr(((BinaryExpr)e).e2(), methodST);
             return;
         }
-        switch(classTypeName){
-            case "ast.ThisExpr":
-            case "ast.IdentifierExpr":
+        switch(e.kind()){
+            case THIS_EXPR:
                 return;
-            case "ast.NewIntArrayExpr":
+            case IDENTIFIER_EXPR:
+                ((IdentifierExpr)e).setNameId(names.id(((IdentifierExpr)e).id()));
+                return;
+            case NEW_OBJECT_EXPR:
+                ((NewObjectExpr)e).setNameId(names.id(((NewObjectExpr)e).classId()));
+                return;
+            case NEW_INT_ARRAY_EXPR:
                 setEnclosingScopeForThisExpr(((NewIntArrayExpr)e).lengthExpr(), methodST);
                 return;
-            case "ast.ArrayLengthExpr":
+            case ARRAY_LENGTH_EXPR:
                 setEnclosingScopeForThisExpr(((ArrayLengthExpr)e).arrayExpr(), methodST);
                 return;
-            case "ast.ArrayAccessExpr":
+            case ARRAY_ACCESS_EXPR:
                 setEnclosingScopeForThisExpr(((ArrayAccessExpr)e).arrayExpr(), methodST);
                 setEnclosingScopeForThisExpr(((ArrayAccessExpr)e).indexExpr(), methodST);
                 return;
-            case "ast.MethodCallExpr":
+            case METHOD_CALL_EXPR:
+                ((MethodCallExpr)e).setNameId(names.id(((MethodCallExpr)e).methodId()));
                 setEnclosingScopeForThisExpr(((MethodCallExpr)e).ownerExpr(), methodST);
                 for(Expr ex : ((MethodCallExpr)e).actuals()){
                     setEnclosingScopeForThisExpr(ex, methodST);
                 }
                 return;
-            case "ast.NotExpr":
+            case NOT_EXPR:
                 setEnclosingScopeForThisExpr(((NotExpr)e).e(), methodST);
                 return;
         }
@@ -206,11 +220,15 @@ public class SymbolTableBuilder {
                 return;
             }
             classdecl.setEnclosingScope(programSymTable);
+            classdecl.setNameId(names.id(classdecl.name()));
+            if (classdecl.superName() != null) classdecl.setSuperNameId(names.id(classdecl.superName()));
             SymbolTable classDeclST = new SymbolTable(programSymTable, classdecl.name());
             addMethodSymbols(classdecl, classDeclST);
             addFieldSymbols(classdecl, classDeclST);
             STSymbol classDeclSymbol = new STSymbol(classdecl.name(), STSymbol.SymbolKind.CLASS_DECL, classdecl, classDeclST);
-            programSymTable.addEntry(classdecl.name(), classDeclSymbol);
+            programSymTable.addEntry(classdecl.nameId(), classDeclSymbol);
         }
+        // the main class has no scope, only the IDs are set
+        setEnclosingScopeForThisExpr(program.mainClass().mainStatement(), null);
     }
 }
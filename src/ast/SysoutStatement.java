@@ -19,6 +19,11 @@ public class SysoutStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.SYSOUT_STATEMENT;
+    }
+
     public Expr arg() {
         return arg.e;
     }
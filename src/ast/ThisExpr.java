@@ -8,4 +8,9 @@ public class ThisExpr extends Expr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.THIS_EXPR;
+    }
 }
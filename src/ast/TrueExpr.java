@@ -9,4 +9,9 @@ public class TrueExpr extends Expr {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.TRUE_EXPR;
+    }
 }
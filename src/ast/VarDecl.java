@@ -15,4 +15,9 @@ public class VarDecl extends VariableIntroduction {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public AstKind kind() {
+        return AstKind.VAR_DECL;
+    }
 }
@@ -10,6 +10,11 @@ public abstract class VariableIntroduction extends AstNode {
     @XmlElement(required = true)
     private String name;
 
+    /**
+     * ID of the variable's name in the program's Names, set by SymbolTableBuilder. -1 until then
+     */
+    private int nameId = -1;
+
     // for deserialization only!
     public VariableIntroduction() {
     }
@@ -31,4 +36,12 @@ public abstract class VariableIntroduction extends AstNode {
     public void setName(String name) {
         this.name = name;
     }
+
+    public int nameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
 }
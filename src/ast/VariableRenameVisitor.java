@@ -1,11 +1,14 @@
 package ast;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 public class VariableRenameVisitor implements Visitor {
     private String oldName;
+    /**
+     * ID of oldName in the program's Names, -1 if the program has no such name
+     */
+    private int oldId;
     private String newName;
     private int lineNumber;
 
@@ -16,31 +19,33 @@ public class VariableRenameVisitor implements Visitor {
      */
     private InheritanceForest forest;
 
-    public VariableRenameVisitor(String oldName, String newName, int lineNumber) {
+    public VariableRenameVisitor(ProgramAnalysis analysis, String oldName, String newName, int lineNumber) {
+        this.forest = analysis.forest();
+        this.programST = analysis.programSymbolTable();
         this.oldName = oldName;
+        this.oldId = analysis.program().names().lookup(oldName);
         this.newName = newName;
         this.lineNumber = lineNumber;
     }
 
     @Override
     public void visit(Program program) {
-        forest = new InheritanceForest(program);
-        programST = new SymbolTable(program);
         /**
          * first find all suspected change locations
          */
         for (ClassDecl classDecl : program.classDecls()) {
-            SymbolTable classST = programST.getSymbol(classDecl.name(), false).enclosedScope();
+            SymbolTable classST = programST.getSymbol(classDecl.nameId(), false).enclosedScope();
             /**
              * Case 1: the var we change is a field in a class.
              * Then we need to look at all the descendants of ths declaring class
              * and change all references to this field.
              */
-            if (classST.contains(oldName, false) && classST.getSymbol(oldName, false).declaration().lineNumber == lineNumber) {
+            if (classST.contains(oldId, false) && classST.getSymbol(oldId, false).declaration().lineNumber == lineNumber) {
                 // List of class declaration which may (or may not) require changes during rename
-                List<ClassDecl> containingClasses = forest.getDescendants(classDecl);
-                if (containingClasses == null) {
-                    containingClasses = new ArrayList<ClassDecl>();
+                List<ClassDecl> containingClasses = new ArrayList<ClassDecl>();
+                // the forest's descendant lists can't be modified
+                if (forest.getDescendants(classDecl) != null) {
+                    containingClasses.addAll(forest.getDescendants(classDecl));
                 }
                 containingClasses.add(classDecl);
                 for (ClassDecl cls : containingClasses) {
@@ -56,8 +61,8 @@ public class VariableRenameVisitor implements Visitor {
              */
             List<MethodDecl> classMethods = classDecl.methoddecls();
             for (MethodDecl method : classMethods) {
-                SymbolTable methodST = classST.getSymbol(method.name(), true).enclosedScope();
-                if (methodST.contains(oldName, false) && methodST.getSymbol(oldName, false).declaration().lineNumber == lineNumber) {
+                SymbolTable methodST = classST.getSymbol(method.nameId(), true).enclosedScope();
+                if (methodST.contains(oldId, false) && methodST.getSymbol(oldId, false).declaration().lineNumber == lineNumber) {
                     method.accept(this);
                     return;
                 }
@@ -75,9 +80,9 @@ public class VariableRenameVisitor implements Visitor {
      */
     @Override
     public void visit(ClassDecl classDecl) {
-        SymbolTable classST = programST.getSymbol(classDecl.name(), false).enclosedScope();
-        if (classST.contains(oldName, false)) {
-            STSymbol fieldSymbol = classST.getSymbol(oldName, false);
+        SymbolTable classST = programST.getSymbol(classDecl.nameId(), false).enclosedScope();
+        if (classST.contains(oldId, false)) {
+            STSymbol fieldSymbol = classST.getSymbol(oldId, false);
             /**
              * if class declares this field, and its line number doesn't match the search query,
              * we conclude it's a descendant class of the original declarator which is hiding the field it inherited
@@ -85,7 +90,7 @@ public class VariableRenameVisitor implements Visitor {
              * case where we would like to proceed down the AST is the case where this is the original declarator.
              */
             if (fieldSymbol.kind() == STSymbol.SymbolKind.FIELD && fieldSymbol.declaration().lineNumber == lineNumber) {
-                VarDecl fieldDecl = (VarDecl) classST.getSymbol(oldName, false).declaration();
+                VarDecl fieldDecl = (VarDecl) classST.getSymbol(oldId, false).declaration();
                 fieldDecl.accept(this);
                 for (MethodDecl methodDecl: classDecl.methoddecls()) {
                     methodDecl.accept(this);
@@ -107,54 +112,23 @@ public class VariableRenameVisitor implements Visitor {
         return;
     }
 
-    private void visit(Expr e){
-        String classTypeName = e.getClass().getName();
-        String binars[] = {"ast.AddExpr", "ast.AndExpr", "ast.LtExpr", "ast.MultExpr", "ast.SubtractExpr"};
-        if(Arrays.asList(binars).contains(classTypeName)){
-            ((BinaryExpr)e).accept(this);
-            return;
-        }
-        switch(classTypeName){
-            case "ast.ArrayAccessExpr":
-                ((ArrayAccessExpr)e).accept(this);
-                return;
-            case "ast.ArrayLengthExpr":
-                ((ArrayLengthExpr)e).accept(this);
-                return;
-            case "ast.MethodCallExpr":
-                ((MethodCallExpr)e).accept(this);
-                return;
-            case "ast.NotExpr":
-                ((NotExpr)e).accept(this);
-                return;
-            case "ast.NewIntArrayExpr":
-                ((NewIntArrayExpr)e).accept(this);
-                return;
-            case "ast.IdentifierExpr":
-                ((IdentifierExpr)e).accept(this);
-                return;
-
-            default: //????
-        }
-    }
-
     @Override
     public void visit(MethodDecl methodDecl) {
         SymbolTable declaringClassST = methodDecl.enclosingScope();
-        SymbolTable methodST = declaringClassST.getSymbol(methodDecl.name(), true).enclosedScope();
+        SymbolTable methodST = declaringClassST.getSymbol(methodDecl.nameId(), true).enclosedScope();
         if (
-                (methodST.contains(oldName, false) && methodST.getSymbol(oldName, false).declaration().lineNumber == lineNumber)
-                || !methodST.contains(oldName, false)
+                (methodST.contains(oldId, false) && methodST.getSymbol(oldId, false).declaration().lineNumber == lineNumber)
+                || !methodST.contains(oldId, false)
         ) {
-            if (methodST.contains(oldName, false)) {
-                VariableIntroduction targetDecl = (VariableIntroduction) methodST.getSymbol(oldName, false).declaration();
+            if (methodST.contains(oldId, false)) {
+                VariableIntroduction targetDecl = (VariableIntroduction) methodST.getSymbol(oldId, false).declaration();
                 targetDecl.accept(this);
             }
             List<Statement> body = methodDecl.body();
             for (Statement stmt : body) {
                 stmt.accept(this);
             }
-            this.visit(methodDecl.ret());
+            methodDecl.ret().accept(this);
         }
     }
 
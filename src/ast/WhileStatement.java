@@ -23,6 +23,11 @@ public class WhileStatement extends Statement {
         v.visit(this);
     }
 
+    @Override
+    public AstKind kind() {
+        return AstKind.WHILE_STATEMENT;
+    }
+
     public Expr cond() {
         return cond.e;
     }